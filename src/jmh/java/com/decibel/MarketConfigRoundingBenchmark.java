@@ -0,0 +1,101 @@
+package com.decibel;
+
+import com.aptoslabs.japtos.core.AccountAddress;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares scalar {@link MarketConfig#priceToTickInteger}/{@link MarketConfig#sizeToLotInteger} calls
+ * against the in-place batch variants over ladders of increasing depth.
+ *
+ * <p>Run with {@code mvn -Pbench package} and
+ * {@code java -jar target/decibel-java-example-1.0-SNAPSHOT-benchmarks.jar MarketConfigRoundingBenchmark}.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarketConfigRoundingBenchmark {
+
+    @Param({"8", "64", "512"})
+    private int depth;
+
+    private MarketConfig market;
+    private long[] sourcePrices;
+    private long[] sourceSizes;
+    private long[] prices;
+    private long[] sizes;
+
+    @Setup
+    public void setup() {
+        // APT-PERP-like market with a non-power-of-two tick and lot size
+        market = new MarketConfig(
+            AccountAddress.fromHex("0xe6de4f6ec47f1bc2ab73920e9f202953e60482e1c1a90e7eef3ee45c8aafee36"),
+            "APT/USD", 6, 10, 1000L, 100000L, 10000L, 1_000_000_000_000L, 8);
+        Random random = new Random(42);
+        sourcePrices = new long[depth];
+        sourceSizes = new long[depth];
+        // Spread the levels over the half of the book below $2.60 so every price stays positive at any depth
+        long step = 130_000_000L / depth;
+        for (int i = 0; i < depth; i++) {
+            sourcePrices[i] = 260000000L - i * step + random.nextInt(1000);
+            sourceSizes[i] = 100000L + random.nextInt(1_000_000);
+        }
+        prices = new long[depth];
+        sizes = new long[depth];
+    }
+
+    @Benchmark
+    public long[] scalarPrices() {
+        System.arraycopy(sourcePrices, 0, prices, 0, depth);
+        for (int i = 0; i < depth; i++) {
+            prices[i] = market.priceToTickInteger(prices[i], false);
+        }
+        return prices;
+    }
+
+    @Benchmark
+    public long[] batchPrices() {
+        System.arraycopy(sourcePrices, 0, prices, 0, depth);
+        market.roundPricesToTick(prices, 0, depth, false);
+        return prices;
+    }
+
+    @Benchmark
+    public long[] scalarSizes() {
+        System.arraycopy(sourceSizes, 0, sizes, 0, depth);
+        for (int i = 0; i < depth; i++) {
+            sizes[i] = market.sizeToLotInteger(sizes[i]);
+        }
+        return sizes;
+    }
+
+    @Benchmark
+    public int batchSizes() {
+        System.arraycopy(sourceSizes, 0, sizes, 0, depth);
+        return market.roundSizesToLot(sizes, 0, depth);
+    }
+
+    @Benchmark
+    public int batchLadder() {
+        System.arraycopy(sourcePrices, 0, prices, 0, depth);
+        System.arraycopy(sourceSizes, 0, sizes, 0, depth);
+        market.roundPricesToTick(prices, 0, depth, false);
+        market.roundSizesToLot(sizes, 0, depth);
+        return market.validateLadder(prices, sizes, depth, true);
+    }
+}
@@ -0,0 +1,95 @@
+package com.decibel;
+
+import com.aptoslabs.japtos.account.Ed25519Account;
+import com.aptoslabs.japtos.client.AptosClient;
+
+import java.io.IOException;
+
+/**
+ * Hands out account sequence numbers locally for a submitter that owns its account.
+ *
+ * <p>Every number taken with {@link #next()} stays in flight until its transaction is settled with
+ * {@link #complete()} or {@link #fail()}. A failure leaves the local counter possibly out of step with the
+ * chain, so the next call to {@link #next()} waits until nothing is in flight before reading the chain's
+ * number. Reading it earlier would return numbers still held by transactions in the mempool, and hand
+ * them out a second time.</p>
+ */
+public class AccountSequencer {
+    /** Longest {@link #next()} waits for in-flight transactions to settle before a resync. */
+    private static final long DRAIN_TIMEOUT_MILLIS = 60_000;
+
+    private final AptosClient client;
+    private final Ed25519Account account;
+
+    // Guarded by this
+    private long nextSequenceNumber = -1;
+    private int inFlight;
+    private boolean stale = true;
+
+    /**
+     * Create a sequencer for the account. Nothing is read until {@link #sync()} or {@link #next()}.
+     */
+    public AccountSequencer(AptosClient client, Ed25519Account account) {
+        this.client = client;
+        this.account = account;
+    }
+
+    /**
+     * Read the chain's next sequence number now, so the first {@link #next()} makes no network call.
+     */
+    public synchronized void sync() throws Exception {
+        awaitDrained();
+        nextSequenceNumber = DecibelTransactions.getNextSequenceNumber(client, account);
+        stale = false;
+    }
+
+    /**
+     * Take the next sequence number, resyncing from the chain first if a transaction has failed since the
+     * last sync.
+     *
+     * @throws IOException If transactions in flight did not settle in time for a resync
+     */
+    public synchronized long next() throws Exception {
+        if (stale) {
+            sync();
+        }
+        inFlight++;
+        return nextSequenceNumber++;
+    }
+
+    /**
+     * Settle a number from {@link #next()} whose transaction committed.
+     */
+    public synchronized void complete() {
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * Settle a number from {@link #next()} whose transaction failed to submit or commit. It may or may not
+     * have been consumed, so the counter is resynced once nothing else is in flight.
+     */
+    public synchronized void fail() {
+        stale = true;
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * @return Numbers taken and not yet settled
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private void awaitDrained() throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS;
+        while (inFlight > 0) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) {
+                throw new IOException(inFlight + " transactions still in flight; cannot resync sequence number");
+            }
+            wait(left);
+        }
+    }
+}
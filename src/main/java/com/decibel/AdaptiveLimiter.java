@@ -0,0 +1,232 @@
+package com.decibel;
+
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Per-endpoint adaptive concurrency limiter with request priorities and 429 backpressure.
+ *
+ * <p>The in-flight limit follows AIMD: each successful request raises it by {@code 1/limit}, and each
+ * rate-limit response halves it. A {@code Retry-After} pauses all new requests to the endpoint until it
+ * expires. While requests are waiting, higher priorities go first: cancels before quotes, quotes before
+ * reads. Cancels may also use one slot of headroom above the limit. Reads are shed immediately
+ * rather than queued behind cancels or quotes, and every priority gives up after a bounded wait.</p>
+ */
+public class AdaptiveLimiter {
+
+    /**
+     * Request priority, highest first.
+     */
+    public enum Priority {
+        CANCEL(10_000),
+        QUOTE(2_000),
+        READ(250);
+
+        private final long maxWaitMillis;
+
+        Priority(long maxWaitMillis) {
+            this.maxWaitMillis = maxWaitMillis;
+        }
+    }
+
+    /**
+     * A request guarded by the limiter.
+     */
+    @FunctionalInterface
+    public interface LimitedCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    private static final ConcurrentMap<String, AdaptiveLimiter> LIMITERS = new ConcurrentHashMap<>();
+    private static final long DEFAULT_RETRY_AFTER_MILLIS = 1000;
+    /**
+     * A 429 status as clients word it ("HTTP 429", "status code: 429", "429 Too Many Requests"). A bare
+     * "429" is not enough, since hashes, addresses and sequence numbers contain it.
+     */
+    private static final Pattern RATE_LIMIT_MESSAGE = Pattern.compile(
+        "(?i)too many requests|\\b(?:http(?:/[\\d.]+)?|status(?:\\s+code)?|code|error)\\s*[:=]?\\s*429\\b");
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+
+    // Guarded by this
+    private double limit;
+    private int inFlight;
+    private long pausedUntilNanos;
+    private final int[] waiting = new int[Priority.values().length];
+
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    /**
+     * Create a limiter.
+     *
+     * @param name Endpoint name for error messages
+     * @param initialLimit Starting in-flight limit
+     * @param minLimit Floor the limit never drops below
+     * @param maxLimit Ceiling the limit never grows above
+     */
+    public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit) {
+        this.name = name;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Shared limiter for the host of a URL, created on first use.
+     */
+    public static AdaptiveLimiter forEndpoint(String url) {
+        String host;
+        try {
+            host = URI.create(url).getHost();
+        } catch (IllegalArgumentException e) {
+            host = null;
+        }
+        String key = host != null ? host : url;
+        return LIMITERS.computeIfAbsent(key, k -> new AdaptiveLimiter(k, 8, 1, 64));
+    }
+
+    /**
+     * Run a call under the limiter, adapting the limit to its outcome.
+     *
+     * @throws RateLimitedException If the request was shed, timed out waiting, or rate-limited by the endpoint
+     */
+    public <T, E extends Exception> T execute(Priority priority, LimitedCall<T, E> call)
+            throws E, RateLimitedException, InterruptedIOException {
+        acquire(priority);
+        try {
+            T result = call.call();
+            onSuccess();
+            return result;
+        } catch (Exception e) {
+            if (e instanceof RateLimitedException) {
+                long retryAfter = ((RateLimitedException) e).getRetryAfterMillis();
+                onRateLimited(retryAfter > 0 ? retryAfter : DEFAULT_RETRY_AFTER_MILLIS);
+            } else if (isRateLimitMessage(e.getMessage())) {
+                // Clients that don't surface status codes report 429s in the message
+                onRateLimited(DEFAULT_RETRY_AFTER_MILLIS);
+            }
+            throw e;
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Take an in-flight slot, waiting for capacity, an expired back-off and higher-priority waiters.
+     * Every successful acquire must be paired with {@link #release()}.
+     */
+    public synchronized void acquire(Priority priority) throws RateLimitedException, InterruptedIOException {
+        int p = priority.ordinal();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(priority.maxWaitMillis);
+        waiting[p]++;
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                boolean paused = now < pausedUntilNanos;
+                boolean preempted = higherPriorityWaiting(p);
+                if (!paused && !preempted && inFlight < capacity(priority)) {
+                    inFlight++;
+                    return;
+                }
+                if (priority == Priority.READ && preempted) {
+                    shed.increment();
+                    throw new RateLimitedException("Read shed in favour of higher-priority requests to " + name, 0);
+                }
+                long remaining = deadline - now;
+                if (remaining <= 0) {
+                    shed.increment();
+                    throw new RateLimitedException(priority + " timed out waiting for capacity on " + name,
+                        Math.max(0, TimeUnit.NANOSECONDS.toMillis(pausedUntilNanos - now)));
+                }
+                long waitNanos = paused ? Math.min(remaining, pausedUntilNanos - now) : remaining;
+                TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for " + name);
+        } finally {
+            // Lower priorities may have been held back only by this waiter
+            waiting[p]--;
+            notifyAll();
+        }
+    }
+
+    public synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * Additive increase after a successful request.
+     */
+    public synchronized void onSuccess() {
+        limit = Math.min(maxLimit, limit + 1.0 / limit);
+    }
+
+    /**
+     * Multiplicative decrease after a rate-limit response, and pause until {@code Retry-After} expires.
+     */
+    public synchronized void onRateLimited(long retryAfterMillis) {
+        rateLimited.increment();
+        limit = Math.max(minLimit, limit / 2);
+        long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(retryAfterMillis, 0));
+        if (until > pausedUntilNanos) {
+            pausedUntilNanos = until;
+        }
+        notifyAll();
+    }
+
+    public synchronized double getLimit() {
+        return limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return Number of 429 responses seen
+     */
+    public long getRateLimitedCount() {
+        return rateLimited.sum();
+    }
+
+    /**
+     * @return Number of requests shed or timed out locally
+     */
+    public long getShedCount() {
+        return shed.sum();
+    }
+
+    private static boolean isRateLimitMessage(String message) {
+        return message != null && RATE_LIMIT_MESSAGE.matcher(message).find();
+    }
+
+    private int capacity(Priority priority) {
+        // Cancels get one slot of headroom so they never queue behind a full window of quotes
+        return (int) limit + (priority == Priority.CANCEL ? 1 : 0);
+    }
+
+    private boolean higherPriorityWaiting(int p) {
+        for (int q = 0; q < p; q++) {
+            if (waiting[q] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AdaptiveLimiter{%s, limit=%.1f, inFlight=%d, rateLimited=%d, shed=%d}",
+            name, getLimit(), getInFlight(), getRateLimitedCount(), getShedCount());
+    }
+}
@@ -0,0 +1,190 @@
+package com.decibel;
+
+import com.aptoslabs.japtos.core.AccountAddress;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Process-wide intern table mapping 32-byte addresses to dense int ids, with cached hex forms.
+ *
+ * <p>Per-market and per-subaccount state can then be kept in arrays indexed by id instead of maps keyed
+ * by {@link AccountAddress}, which hash a byte array on every lookup. Code on a hot path should look an
+ * address up once, at registration, and carry the id from then on. Ids start at 0, are never reused and
+ * stay valid for the life of the process.</p>
+ *
+ * <p>The table is open-addressed over the four 64-bit words of each address. Lookups compare words
+ * rather than hashing a byte array, and take no lock. Inserting a new address locks the table and,
+ * when it is more than half full, replaces it with one twice the size.</p>
+ */
+public final class AddressTable {
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final Object lock = new Object();
+    private static volatile Table table = new Table(INITIAL_CAPACITY);
+    private static volatile AccountAddress[] addresses = new AccountAddress[INITIAL_CAPACITY / 2];
+    private static volatile String[] hexes = new String[INITIAL_CAPACITY / 2];
+    private static volatile int size;
+
+    private AddressTable() {
+    }
+
+    /**
+     * @return Id of the address, interning it if it is new
+     */
+    public static int id(AccountAddress address) {
+        byte[] bytes = address.toBytes();
+        long w0 = word(bytes, 0);
+        long w1 = word(bytes, 1);
+        long w2 = word(bytes, 2);
+        long w3 = word(bytes, 3);
+        int id = table.find(w0, w1, w2, w3);
+        return id >= 0 ? id : insert(address, w0, w1, w2, w3);
+    }
+
+    /**
+     * @return Id of the address, or -1 if it has never been interned
+     */
+    public static int find(AccountAddress address) {
+        byte[] bytes = address.toBytes();
+        return table.find(word(bytes, 0), word(bytes, 1), word(bytes, 2), word(bytes, 3));
+    }
+
+    /**
+     * @return The address with this id
+     */
+    public static AccountAddress address(int id) {
+        checkId(id);
+        return addresses[id];
+    }
+
+    /**
+     * @return Full {@code 0x}-prefixed hex form of the address with this id
+     */
+    public static String hex(int id) {
+        checkId(id);
+        return hexes[id];
+    }
+
+    /**
+     * @return Full {@code 0x}-prefixed hex form of the address, interning it if it is new
+     */
+    public static String hex(AccountAddress address) {
+        // Intern first: it may replace the hex array
+        int id = id(address);
+        return hexes[id];
+    }
+
+    /**
+     * @return Number of interned addresses; ids are {@code 0} to {@code size() - 1}
+     */
+    public static int size() {
+        return size;
+    }
+
+    private static void checkId(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("Unknown address id: " + id);
+        }
+    }
+
+    private static int insert(AccountAddress address, long w0, long w1, long w2, long w3) {
+        synchronized (lock) {
+            Table current = table;
+            int id = current.find(w0, w1, w2, w3);
+            if (id >= 0) {
+                return id;
+            }
+            id = size;
+            if (id == addresses.length) {
+                addresses = Arrays.copyOf(addresses, id * 2);
+                hexes = Arrays.copyOf(hexes, id * 2);
+            }
+            addresses[id] = address;
+            hexes[id] = address.toHexString();
+            if ((id + 1) * 2 > current.capacity()) {
+                Table grown = new Table(current.capacity() * 2);
+                current.copyTo(grown);
+                grown.put(w0, w1, w2, w3, id);
+                table = grown;
+            } else {
+                current.put(w0, w1, w2, w3, id);
+            }
+            // Publishing size last makes the entry arrays visible to id-based readers
+            size = id + 1;
+            return id;
+        }
+    }
+
+    private static long word(byte[] bytes, int index) {
+        return (long) LONGS.get(bytes, index * 8);
+    }
+
+    private static int hash(long w0, long w1, long w2, long w3) {
+        long h = w0 * 0x9E3779B97F4A7C15L + w1;
+        h = h * 0x9E3779B97F4A7C15L + w2;
+        h = h * 0x9E3779B97F4A7C15L + w3;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Linear-probing slots of four address words plus id. A slot's words are written before its id, and
+     * ids are read and written with volatile semantics, so a reader that sees an id sees its words.
+     */
+    private static final class Table {
+        final long[] words;
+        // id + 1 per slot; 0 marks an empty slot
+        final AtomicIntegerArray ids;
+        final int mask;
+
+        Table(int capacity) {
+            words = new long[capacity * 4];
+            ids = new AtomicIntegerArray(capacity);
+            mask = capacity - 1;
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+
+        int find(long w0, long w1, long w2, long w3) {
+            for (int slot = hash(w0, w1, w2, w3) & mask; ; slot = (slot + 1) & mask) {
+                int id = ids.get(slot) - 1;
+                if (id < 0) {
+                    return -1;
+                }
+                int base = slot * 4;
+                if (words[base] == w0 && words[base + 1] == w1 && words[base + 2] == w2 && words[base + 3] == w3) {
+                    return id;
+                }
+            }
+        }
+
+        void put(long w0, long w1, long w2, long w3, int id) {
+            int slot = hash(w0, w1, w2, w3) & mask;
+            while (ids.get(slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            int base = slot * 4;
+            words[base] = w0;
+            words[base + 1] = w1;
+            words[base + 2] = w2;
+            words[base + 3] = w3;
+            ids.set(slot, id + 1);
+        }
+
+        void copyTo(Table target) {
+            for (int slot = 0; slot <= mask; slot++) {
+                int id = ids.get(slot) - 1;
+                if (id >= 0) {
+                    int base = slot * 4;
+                    target.put(words[base], words[base + 1], words[base + 2], words[base + 3], id);
+                }
+            }
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
@@ -19,6 +20,8 @@ import java.util.Properties;
  */
 public class BulkOrderExample {
     private static final Logger logger = LoggerFactory.getLogger(BulkOrderExample.class);
+    /** Longest 'x' waits for pipeline quotes to commit before cancelling. */
+    private static final long PIPELINE_DRAIN_MILLIS = 30_000;
     
     private final AptosClient client;
     private final Properties config;
@@ -33,7 +36,12 @@ public class BulkOrderExample {
         
         // Initialize Aptos client
         String fullnodeUrl = config.getProperty("aptos.fullnode.url");
-        this.client = new AptosClient(fullnodeUrl);
+        this.client = DecibelTransactions.createClient(fullnodeUrl);
+        
+        // Optional fullnode pool, order journal and signing stage
+        InputUtils.configureFullnodes(config);
+        InputUtils.openJournal(config);
+        InputUtils.startSigningStage(config);
         
         // Initialize account (load from config or generate new)
         this.account = InputUtils.initializeAccount(client, config);
@@ -53,6 +61,30 @@ public class BulkOrderExample {
         return txHash;
     }
     
+    /**
+     * Value the position at the bot's mid and refresh it from the chain before quoting. The bot has no fill
+     * stream, so each feed turns its subaccount's position changes into fills at the mid. The bot's and the
+     * hedger's subaccounts are read in one batch. A failed read keeps the last known positions.
+     */
+    private static void syncPositions(List<FillFeed> fillFeeds, List<AccountAddress> subaccounts,
+                                      RiskEngine riskEngine, StateReader stateReader,
+                                      StateReader.ViewFunctions views, AccountAddress marketAddr, long midPrice) {
+        if (riskEngine != null) {
+            riskEngine.setMarkPrice(riskEngine.marketId(marketAddr), midPrice);
+        }
+        try {
+            StateReader.Snapshot snapshot = stateReader.readSubaccounts(subaccounts, Arrays.asList(marketAddr),
+                views);
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < fillFeeds.size(); i++) {
+                fillFeeds.get(i).onPosition(now, marketAddr, snapshot.getSubaccounts().get(i).getPosition(0),
+                    midPrice);
+            }
+        } catch (Exception e) {
+            logger.warn("Position refresh failed, keeping the last known position: {}", e.getMessage());
+        }
+    }
+    
     public static void main(String[] args) {
         try {
             BulkOrderExample example = new BulkOrderExample();
@@ -61,17 +93,63 @@ public class BulkOrderExample {
             logger.info("Market: APT-PERP");
             logger.info("Subaccount: {}", subaccountAddr);
             
-            // Get the trading API URL and key from config
+            // Get the trading API URL from config
             String tradingApiUrl = example.config.getProperty("trading.api.url", "https://api.netna.aptoslabs.com/decibel");
-            String tradingApiKey = example.config.getProperty("trading.api.key");
 
-            // Fetch market configuration
-            MarketConfig marketConfig = DecibelUtils.getMarketConfig(tradingApiUrl, example.marketAddress, tradingApiKey);
+            // Market configuration, from the local snapshot if one is configured
+            MarketRegistry marketRegistry = InputUtils.openMarketRegistry(example.config);
+            MarketConfig marketConfig = marketRegistry.getMarket(example.marketAddress);
             if (marketConfig == null) {
                 throw new RuntimeException("Market configuration not found for address: " + example.marketAddress);
             }
             logger.info("Market config loaded: {}", marketConfig);
 
+            // Reject orders locally that would fail on-chain limits, if collateral is configured
+            String riskCollateral = example.config.getProperty("risk.collateral");
+            String positionView = example.config.getProperty("state.view.position");
+            boolean tracksPosition = positionView != null && !positionView.trim().isEmpty();
+            RiskEngine riskEngine = null;
+            StateReader.ViewFunctions stateViews = InputUtils.stateViewFunctions(example.config);
+            if (riskCollateral != null && !riskCollateral.trim().isEmpty()) {
+                // The bot sees no fills, so positions must come from the chain or the margin checks are blind
+                if (!tracksPosition) {
+                    throw new IllegalStateException(
+                        "risk.collateral requires state.view.position so the position can be tracked");
+                }
+                riskEngine = new RiskEngine(1, 1);
+                riskEngine.registerMarket(marketConfig);
+                riskEngine.registerSubaccount(subaccountAddr, Double.parseDouble(riskCollateral.trim()));
+                DecibelTransactions.setRiskEngine(riskEngine);
+                logger.info("Pre-trade risk checks enabled with collateral {}", riskCollateral.trim());
+            }
+
+            // Fills are derived from the chain position, so they need state.view.position
+            FillStore fillStore = InputUtils.openFillStore(example.config);
+            Hedger hedger = InputUtils.createHedger(example.config, example.client, example.packageAddress,
+                marketConfig, example.chainId);
+            if (hedger != null && !tracksPosition) {
+                throw new IllegalStateException(
+                    "hedge.private.key requires state.view.position so fills can be derived");
+            }
+            StateReader stateReader = null;
+            List<FillFeed> fillFeeds = new ArrayList<>();
+            List<AccountAddress> fillSubaccounts = new ArrayList<>();
+            if (tracksPosition) {
+                stateReader = InputUtils.createStateReader(example.config);
+                fillFeeds.add(new FillFeed(subaccountAddr, riskEngine, fillStore, hedger));
+                fillSubaccounts.add(subaccountAddr);
+            } else if (fillStore != null) {
+                logger.warn("fills.dir records orders only; set state.view.position to record fills too");
+            }
+            if (hedger != null) {
+                // The hedger's own fills come back through the same path, so they net against its hedges
+                fillFeeds.add(new FillFeed(hedger.getSubaccountAddr(), null, fillStore, hedger));
+                fillSubaccounts.add(hedger.getSubaccountAddr());
+                hedger.start();
+                logger.info("Hedging {} from subaccount {}", marketConfig.getMarketName(),
+                    hedger.getSubaccountAddr());
+            }
+
             // Get the current bulk order sequence number from the trading API
             long sequenceNumber = DecibelUtils.getBulkOrderSequenceNumber(
                 tradingApiUrl,
@@ -88,13 +166,24 @@ public class BulkOrderExample {
             double askOffset2 = 0.02;  // 2% above mid (ask 2)
             long orderSize = 100000L;
             
+            // Optional staged pipeline; quotes then go out without blocking this thread
+            QuotePipeline pipeline = InputUtils.createQuotePipeline(example.config, example.client, example.account,
+                example.packageAddress, subaccountAddr, marketConfig, riskEngine, example.chainId,
+                new double[] {bidOffset1, bidOffset2}, orderSize, sequenceNumber);
+            if (pipeline != null) {
+                pipeline.start();
+                logger.info("Quoting through the pipeline");
+            }
+            
             System.out.println("\n🤖 Interactive Bulk Order Bot");
             System.out.println("==============================");
             System.out.println("Mid Price: $" + String.format("%.2f", midPrice / 100_000_000.0));
             System.out.println("Spread: ±1% and ±2%\n");
             System.out.println("Press '1' + ENTER to move all orders UP 1% (↑)");
             System.out.println("Press '2' + ENTER to move all orders DOWN 1% (↓)");
-            System.out.println("Press 'f' + ENTER to fund account (faucet + mint + deposit)");
+            if (pipeline == null) {
+                System.out.println("Press 'f' + ENTER to fund account (faucet + mint + deposit)");
+            }
             System.out.println("Press 'x' + ENTER to cancel orders and exit\n");
             
             BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
@@ -112,6 +201,15 @@ public class BulkOrderExample {
                 
                 if (input.equals("x")) {
                     System.out.println("\n🛑 Cancelling orders and stopping bot...");
+                    if (pipeline != null) {
+                        // The cancel reads the account sequence number from the chain, so every quote
+                        // already published must have committed first
+                        if (!pipeline.awaitDrained(PIPELINE_DRAIN_MILLIS)) {
+                            System.err.println("⚠️ Pipeline quotes still in flight; the cancel may be rejected");
+                        }
+                        pipeline.close();
+                        sequenceNumber = pipeline.getNextBulkSequenceNumber();
+                    }
                     try {
                         String txHash = DecibelTransactions.cancelBulkOrders(
                             example.client, example.account, example.packageAddress, 
@@ -121,6 +219,9 @@ public class BulkOrderExample {
                         logger.error("Failed to cancel orders", e);
                         System.err.println("❌ Failed to cancel orders: " + e.getMessage());
                     }
+                    if (hedger != null) {
+                        hedger.close();
+                    }
                     System.exit(0);
                 } else if (input.equals("1")) {
                     // Move mid price up by 1%
@@ -130,6 +231,10 @@ public class BulkOrderExample {
                     // Move mid price down by 1%
                     midPrice *= 0.99;
                     System.out.println("↓ Moving DOWN to mid $" + String.format("%.2f", midPrice / 100_000_000.0));
+                } else if (input.equals("f") && pipeline != null) {
+                    // Minting and depositing would take account sequence numbers the pipeline hands out
+                    System.out.println("❌ Funding is disabled while quoting through the pipeline\n");
+                    continue;
                 } else if (input.equals("f")) {
                     // Fund account with faucet, mint USDC, and deposit
                     System.out.println("\n💰 Funding account...");
@@ -165,6 +270,18 @@ public class BulkOrderExample {
                     continue;
                 }
                 
+                if (!fillFeeds.isEmpty()) {
+                    syncPositions(fillFeeds, fillSubaccounts, riskEngine, stateReader, stateViews,
+                        example.marketAddress, (long) midPrice);
+                }
+                
+                if (pipeline != null) {
+                    if (!pipeline.onMarketData((long) midPrice)) {
+                        System.err.println("❌ Pipeline full, quote dropped\n");
+                    }
+                    continue;
+                }
+                
                 // Calculate bid and ask prices from mid price with fixed offsets
                 // Round prices to valid tick increments and sizes to valid lot increments
                 long bidPrice1 = marketConfig.priceToTickInteger((long)(midPrice * (1 - bidOffset1)), false);  // Round down for bids
@@ -0,0 +1,331 @@
+package com.decibel;
+
+import com.aptoslabs.japtos.account.Ed25519Account;
+import com.aptoslabs.japtos.client.AptosClient;
+import com.aptoslabs.japtos.core.AccountAddress;
+import com.aptoslabs.japtos.transaction.RawTransaction;
+import com.aptoslabs.japtos.types.EntryFunctionPayload;
+import com.aptoslabs.japtos.types.Identifier;
+import com.aptoslabs.japtos.types.ModuleId;
+import com.aptoslabs.japtos.types.TransactionArgument;
+import com.aptoslabs.japtos.types.TransactionPayload;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Single entry point for the launcher jar.
+ *
+ * <p>Each subcommand sets up only what it uses: {@code cancel-all} never starts a signing stage or
+ * generates an account, and {@code bench} never touches the network. Together with the AppCDS archive
+ * produced by the {@code appcds} build profile from a {@code train} run, this keeps short cron-style
+ * jobs from spending most of their runtime on JVM startup.</p>
+ *
+ * <pre>
+ * order                      Submit a single order
+ * bulk-bot                   Run the interactive bulk order bot
+ * cancel-all [market...]     Cancel bulk orders on the given markets, or every market
+ * reconcile [keystore]       Read subaccount state at one ledger version and check it against the trading API
+ * provision &lt;count&gt; [file]   Provision a fleet of funded accounts
+ * twap &lt;market&gt; &lt;buy|sell&gt; &lt;size&gt; &lt;price&gt; &lt;minutes&gt; &lt;slices&gt;
+ *                            Work an order as a TWAP of IOC slices
+ * bench [iterations]         Measure local signing and risk-check latency
+ * train                      Exercise the startup path offline (for the AppCDS archive)
+ * </pre>
+ */
+public class DecibelCli {
+    private static final Logger logger = LoggerFactory.getLogger(DecibelCli.class);
+
+    private static final String USAGE = String.join("\n",
+        "Usage: java -jar decibel-java-example.jar <command> [args]",
+        "",
+        "  order                      Submit a single order",
+        "  bulk-bot                   Run the interactive bulk order bot",
+        "  cancel-all [market...]     Cancel bulk orders on the given markets, or every market",
+        "  reconcile [keystore]       Read subaccount state at one ledger version and check it against the trading API",
+        "  provision <count> [file]   Provision a fleet of funded accounts",
+        "  twap <market> <buy|sell> <size> <price> <minutes> <slices>",
+        "                             Work an order as a TWAP of IOC slices",
+        "  bench [iterations]         Measure local signing and risk-check latency",
+        "  train                      Exercise the startup path offline (for the AppCDS archive)");
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        String[] rest = Arrays.copyOfRange(args, 1, args.length);
+        switch (args[0]) {
+            case "order":
+                OrderExample.main(rest);
+                break;
+            case "bulk-bot":
+                BulkOrderExample.main(rest);
+                break;
+            case "provision":
+                FleetProvisioner.main(rest);
+                break;
+            case "cancel-all":
+                run("Cancel", () -> cancelAll(rest));
+                break;
+            case "reconcile":
+                run("Reconcile", () -> reconcile(rest));
+                break;
+            case "twap":
+                if (rest.length != 6) {
+                    System.err.println(USAGE);
+                    System.exit(2);
+                }
+                run("TWAP", () -> twap(rest));
+                break;
+            case "bench":
+                run("Benchmark", () -> bench(rest.length > 0 ? Integer.parseInt(rest[0]) : 10_000));
+                break;
+            case "train":
+                run("Training run", DecibelCli::train);
+                break;
+            default:
+                System.err.println("Unknown command: " + args[0] + "\n\n" + USAGE);
+                System.exit(2);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Command {
+        void run() throws Exception;
+    }
+
+    private static void run(String name, Command command) {
+        try {
+            command.run();
+            System.exit(0);
+        } catch (Exception e) {
+            logger.error("{} failed", name, e);
+            System.err.println("\n❌ " + name + " failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Cancel the configured account's bulk orders on each market that has one open.
+     */
+    private static void cancelAll(String[] marketArgs) throws Exception {
+        Properties config = InputUtils.loadConfig();
+        AptosClient client = DecibelTransactions.createClient(config.getProperty("aptos.fullnode.url"));
+        InputUtils.configureFullnodes(config);
+        InputUtils.openJournal(config);
+        Ed25519Account account = InputUtils.loadAccount(config);
+
+        AccountAddress packageAddress = AccountAddress.fromHex(config.getProperty("deployment.package"));
+        AccountAddress subaccountAddr = DecibelUtils.getPrimarySubaccountAddr(packageAddress, account.getAccountAddress());
+        int chainId = Integer.parseInt(config.getProperty("chain.id"));
+        String tradingApiUrl = config.getProperty("trading.api.url", "https://api.netna.aptoslabs.com/decibel");
+
+        List<AccountAddress> markets = new ArrayList<>();
+        if (marketArgs.length > 0) {
+            for (String market : marketArgs) {
+                markets.add(AccountAddress.fromHex(market));
+            }
+        } else {
+            for (MarketConfig market : InputUtils.openMarketRegistry(config).getMarkets()) {
+                markets.add(market.getMarketAddr());
+            }
+        }
+
+        int failed = 0;
+        for (AccountAddress market : markets) {
+            try {
+                // A failed lookup skips the market rather than cancelling at a guessed sequence number
+                long sequenceNumber = DecibelUtils.getOpenBulkOrderSequenceNumber(tradingApiUrl, subaccountAddr, market);
+                if (sequenceNumber < 0) {
+                    System.out.println("   No open bulk order on " + market);
+                    continue;
+                }
+                String txHash = DecibelTransactions.cancelBulkOrders(client, account, packageAddress, subaccountAddr,
+                    market, sequenceNumber, chainId);
+                System.out.println("✅ Cancelled on " + market + " | Tx: " + txHash);
+            } catch (Exception e) {
+                failed++;
+                logger.warn("Cancel failed on {}: {}", market, e.getMessage());
+            }
+        }
+        if (failed > 0) {
+            throw new RuntimeException(failed + " of " + markets.size() + " cancels failed");
+        }
+    }
+
+    /**
+     * Read the configured account's subaccount, or every subaccount in a fleet keystore, on every market at
+     * one ledger version, and check each on-chain bulk order sequence number against the trading API's.
+     */
+    private static void reconcile(String[] args) throws Exception {
+        Properties config = InputUtils.loadConfig();
+        AccountAddress packageAddress = AccountAddress.fromHex(config.getProperty("deployment.package"));
+        String tradingApiUrl = config.getProperty("trading.api.url", "https://api.netna.aptoslabs.com/decibel");
+        StateReader.ViewFunctions views = InputUtils.stateViewFunctions(config);
+
+        List<AccountAddress> subaccounts = new ArrayList<>();
+        if (args.length > 0) {
+            for (FleetProvisioner.FleetAccount fleetAccount : FleetProvisioner.loadKeystore(Paths.get(args[0]))) {
+                subaccounts.add(fleetAccount.getSubaccountAddr());
+            }
+        } else {
+            Ed25519Account account = InputUtils.loadAccount(config);
+            subaccounts.add(DecibelUtils.getPrimarySubaccountAddr(packageAddress, account.getAccountAddress()));
+        }
+        List<AccountAddress> markets = new ArrayList<>();
+        for (MarketConfig market : InputUtils.openMarketRegistry(config).getMarkets()) {
+            markets.add(market.getMarketAddr());
+        }
+
+        int mismatched = 0;
+        try (StateReader reader = InputUtils.createStateReader(config)) {
+            StateReader.Snapshot snapshot = reader.readSubaccounts(subaccounts, markets, views);
+            System.out.println("Ledger version " + snapshot.getLedgerVersion());
+            for (StateReader.SubaccountState state : snapshot.getSubaccounts()) {
+                System.out.println(state.getSubaccountAddr() + " | collateral " + orDash(state.getCollateral()));
+                for (int m = 0; m < markets.size(); m++) {
+                    long chainSequence = state.getBulkSequenceNumber(m);
+                    System.out.println("   " + markets.get(m) + " | position " + orDash(state.getPosition(m))
+                        + " | bulk seq " + orDash(chainSequence));
+                    if (chainSequence == Long.MIN_VALUE) {
+                        continue;
+                    }
+                    long apiNext = DecibelUtils.getOpenBulkOrderSequenceNumber(tradingApiUrl,
+                        state.getSubaccountAddr(), markets.get(m));
+                    // Only resting bulk orders can be compared; the trading API reports none otherwise
+                    if (apiNext >= 0 && apiNext - 1 != chainSequence) {
+                        mismatched++;
+                        System.out.println("   ⚠️ Trading API has bulk seq " + (apiNext - 1));
+                    }
+                }
+            }
+        }
+        if (mismatched > 0) {
+            throw new RuntimeException(mismatched + " bulk order sequence numbers differ from the chain");
+        }
+    }
+
+    private static String orDash(long value) {
+        return value == Long.MIN_VALUE ? "-" : Long.toString(value);
+    }
+
+    /**
+     * Work one parent order as a TWAP on the execution scheduler and wait for it to finish.
+     */
+    private static void twap(String[] args) throws Exception {
+        Properties config = InputUtils.loadConfig();
+        AptosClient client = DecibelTransactions.createClient(config.getProperty("aptos.fullnode.url"));
+        InputUtils.configureFullnodes(config);
+        InputUtils.openJournal(config);
+        InputUtils.startSigningStage(config);
+        Ed25519Account account = InputUtils.loadAccount(config);
+
+        AccountAddress packageAddress = AccountAddress.fromHex(config.getProperty("deployment.package"));
+        AccountAddress subaccountAddr = DecibelUtils.getPrimarySubaccountAddr(packageAddress, account.getAccountAddress());
+        int chainId = Integer.parseInt(config.getProperty("chain.id"));
+
+        AccountAddress marketAddr = AccountAddress.fromHex(args[0]);
+        MarketConfig market = InputUtils.openMarketRegistry(config).getMarket(marketAddr);
+        if (market == null) {
+            throw new RuntimeException("Market configuration not found for address: " + marketAddr);
+        }
+        boolean isBuy = args[1].equalsIgnoreCase("buy");
+        long price = market.priceToTickInteger(Long.parseLong(args[3]), !isBuy);
+
+        try (ExecutionScheduler scheduler = InputUtils.createExecutionScheduler(config, client, account,
+                packageAddress, subaccountAddr, chainId)) {
+            scheduler.start();
+            ExecutionScheduler.ParentOrder parent = scheduler.twap(market, isBuy, Long.parseLong(args[2]), price,
+                2, Long.parseLong(args[4]) * 60_000, Integer.parseInt(args[5]));
+            while (!parent.isDone()) {
+                Thread.sleep(1000);
+            }
+            System.out.println("✅ TWAP finished: submitted " + parent.getSubmitted() + " of " + parent.getTotalSize());
+        }
+    }
+
+    /**
+     * Sign transactions on a signing stage and run risk checks, all locally, and print latency.
+     */
+    private static void bench(int iterations) throws Exception {
+        Ed25519Account account = Ed25519Account.generate();
+        AccountAddress packageAddress = AccountAddress.fromHex("0x1");
+        AccountAddress marketAddress = AccountAddress.fromHex("0x2");
+        AccountAddress subaccountAddr = DecibelUtils.getPrimarySubaccountAddr(packageAddress, account.getAccountAddress());
+
+        TransactionPayload payload = new EntryFunctionPayload(
+            new ModuleId(packageAddress, new Identifier("usdc")),
+            new Identifier("mint"),
+            Arrays.asList(),
+            Arrays.asList(new TransactionArgument.AccountAddress(account.getAccountAddress()),
+                new TransactionArgument.U64(1))
+        );
+        long expiry = System.currentTimeMillis() / 1000 + 3600;
+
+        try (SigningStage stage = new SigningStage(Runtime.getRuntime().availableProcessors(), iterations)) {
+            List<CompletableFuture<?>> pending = new ArrayList<>(iterations);
+            for (int i = 0; i < iterations; i++) {
+                RawTransaction rawTx = new RawTransaction(account.getAccountAddress(), i, payload,
+                    1000000L, 100L, expiry, 4);
+                pending.add(stage.sign(account, rawTx));
+            }
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).get();
+            System.out.println("Sign:       " + stage.getSignLatency());
+            System.out.println("Sign queue: " + stage.getQueueLatency());
+        }
+
+        MarketConfig marketConfig = new MarketConfig(marketAddress, "BENCH-PERP", 6, 10, 1000, 100_000, 10_000,
+            1_000_000_000_000L, 6);
+        RiskEngine engine = new RiskEngine(1, 1);
+        int marketId = engine.registerMarket(marketConfig);
+        int subaccountId = engine.registerSubaccount(subaccountAddr, 1_000_000);
+        engine.setMarkPrice(marketId, 2_600_000);
+        LatencyHistogram riskLatency = new LatencyHistogram();
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            engine.checkOrder(subaccountId, marketId, 2_600_000 + (i % 100) * 1000L, 100_000, (i & 1) == 0, false);
+            riskLatency.record(System.nanoTime() - start);
+        }
+        System.out.println("Risk check: " + riskLatency);
+    }
+
+    /**
+     * Load and run the classes a typical command needs, without network access or config.
+     * The {@code appcds} profile records the classes loaded here into the shared archive.
+     */
+    private static void train() throws Exception {
+        bench(2_000);
+
+        MarketConfig.fromJson(new ObjectMapper().readTree(
+            "{\"market_addr\":\"0x2\",\"market_name\":\"TRAIN-PERP\",\"sz_decimals\":6,\"max_leverage\":10,"
+                + "\"tick_size\":1000,\"min_size\":100000,\"lot_size\":10000,\"max_open_interest\":1000000,"
+                + "\"px_decimals\":6}"));
+
+        Path dir = Files.createTempDirectory("decibel-train");
+        try (OrderJournal journal = OrderJournal.open(dir.resolve("journal"));
+             FillStore fills = FillStore.open(dir.resolve("fills"))) {
+            AccountAddress market = AccountAddress.fromHex("0x2");
+            journal.recordBulk(market, market, 1, 1, Arrays.asList(2_600_000L), Arrays.asList(100_000L),
+                Arrays.asList(2_700_000L), Arrays.asList(100_000L), null);
+            fills.appendFill(System.currentTimeMillis(), market, true, 2_600_000, 100_000, 10);
+        } finally {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        AdaptiveLimiter.forEndpoint("http://localhost").execute(AdaptiveLimiter.Priority.READ, () -> null);
+        logger.info("Training run complete");
+    }
+}
@@ -8,16 +8,101 @@ import com.aptoslabs.japtos.transaction.RawTransaction;
 import com.aptoslabs.japtos.transaction.SignedTransaction;
 import com.aptoslabs.japtos.types.*;
 import com.aptoslabs.japtos.types.MoveOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Transaction methods for Decibel DEX operations.
  */
 public class DecibelTransactions {
+    /** Longest a caller waits on the signing stage before signing inline; a signature normally takes microseconds. */
+    private static final long SIGN_TIMEOUT_MILLIS = 1000;
+    /** Longest a commit wait through the fullnode pool may take in total. */
+    private static final long COMMIT_TIMEOUT_MILLIS = 30_000;
+    private static final Logger logger = LoggerFactory.getLogger(DecibelTransactions.class);
+    private static volatile OrderJournal journal;
+    private static volatile FillStore fillStore;
+    private static volatile RiskEngine riskEngine;
+    private static volatile SigningStage signingStage;
+    private static volatile FullnodePool fullnodePool;
+    private static volatile int hedgeFanout = 1;
+    /** Runs the waits behind {@link #awaitOrderCommit} and {@link #awaitBulkCommit}; they block for seconds, so each gets a thread. */
+    private static final ExecutorService commitWaiters = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "order-commit");
+        t.setDaemon(true);
+        return t;
+    });
+    /** Host limiter for each client made by {@link #createClient}, so a client shares its host's limiter. */
+    private static final Map<AptosClient, AdaptiveLimiter> clientLimiters =
+        Collections.synchronizedMap(new WeakHashMap<>());
+    
+    /**
+     * Journal every subsequent order, bulk order and cancel submission along with its outcome.
+     * Pass null to stop journaling.
+     */
+    public static void setJournal(OrderJournal orderJournal) {
+        journal = orderJournal;
+    }
+    
+    /**
+     * Record every subsequent order and bulk order a fullnode accepts in the store's orders table, one row
+     * per order or ladder level. Pass null to stop recording.
+     */
+    public static void setFillStore(FillStore store) {
+        fillStore = store;
+    }
+    
+    /**
+     * Check every subsequent order and bulk order against a pre-trade risk engine before submitting.
+     * Rejected orders throw {@link RiskRejectedException} without sending a transaction. Pass null to disable.
+     */
+    public static void setRiskEngine(RiskEngine engine) {
+        riskEngine = engine;
+    }
+    
+    /**
+     * Sign every subsequent transaction on a dedicated signing stage instead of the calling thread.
+     * Pass null to sign inline.
+     */
+    public static void setSigningStage(SigningStage stage) {
+        signingStage = stage;
+    }
+    
+    /**
+     * Route sequence number reads, submissions and commit waits through a pool of fullnodes instead of
+     * the {@code client} passed to each method. Submissions are sent to the {@code fanout} best endpoints
+     * at once and the first acceptance is used. Pass null to use the given client again.
+     */
+    public static void setFullnodePool(FullnodePool pool, int fanout) {
+        hedgeFanout = Math.max(1, fanout);
+        fullnodePool = pool;
+    }
+    
+    /**
+     * Create a fullnode client whose submissions and sequence number reads go through the shared
+     * {@link AdaptiveLimiter} for its host, the same one every other caller of that host uses.
+     */
+    public static AptosClient createClient(String fullnodeUrl) {
+        AptosClient client = new AptosClient(fullnodeUrl);
+        clientLimiters.put(client, AdaptiveLimiter.forEndpoint(fullnodeUrl));
+        return client;
+    }
     
     /**
      * Mint USDC tokens to an account.
@@ -30,6 +115,26 @@ public class DecibelTransactions {
             long amount,
             int chainId) throws Exception {
         
+        long sequenceNumber = nextSequenceNumber(client, account, AdaptiveLimiter.Priority.QUOTE);
+        String txHash = submitMintUsdc(client, account, packageAddress, toAddr, amount, sequenceNumber, chainId);
+        waitForTransaction(client, txHash);
+    }
+    
+    /**
+     * Submit a USDC mint at an explicit account sequence number without waiting for it to commit.
+     * Lets callers pipeline several transactions from one account.
+     *
+     * @return Transaction hash
+     */
+    public static String submitMintUsdc(
+            AptosClient client,
+            Ed25519Account account,
+            AccountAddress packageAddress,
+            AccountAddress toAddr,
+            long amount,
+            long sequenceNumber,
+            int chainId) throws Exception {
+        
         ModuleId moduleId = new ModuleId(packageAddress, new Identifier("usdc"));
         
         List<TransactionArgument> functionArgs = new ArrayList<>();
@@ -43,25 +148,7 @@ public class DecibelTransactions {
             functionArgs
         );
         
-        long sequenceNumber = client.getNextSequenceNumber(account.getAccountAddress());
-        
-        RawTransaction rawTx = new RawTransaction(
-            account.getAccountAddress(),
-            sequenceNumber,
-            payload,
-            1000000L,
-            100L,
-            System.currentTimeMillis() / 1000 + 3600,
-            chainId
-        );
-        
-        SignedTransaction signedTx = new SignedTransaction(
-            rawTx,
-            account.signTransactionWithAuthenticator(rawTx)
-        );
-        
-        PendingTransaction pendingTx = client.submitTransaction(signedTx);
-        client.waitForTransaction(pendingTx.getHash());
+        return submitAt(client, account, payload, sequenceNumber, chainId);
     }
     
     /**
@@ -76,6 +163,27 @@ public class DecibelTransactions {
             long amount,
             int chainId) throws Exception {
         
+        long sequenceNumber = nextSequenceNumber(client, account, AdaptiveLimiter.Priority.QUOTE);
+        String txHash = submitDepositToSubaccount(client, account, packageAddress, subaccountAddr, assetAddress,
+            amount, sequenceNumber, chainId);
+        waitForTransaction(client, txHash);
+    }
+    
+    /**
+     * Submit a subaccount deposit at an explicit account sequence number without waiting for it to commit.
+     *
+     * @return Transaction hash
+     */
+    public static String submitDepositToSubaccount(
+            AptosClient client,
+            Ed25519Account account,
+            AccountAddress packageAddress,
+            AccountAddress subaccountAddr,
+            AccountAddress assetAddress,
+            long amount,
+            long sequenceNumber,
+            int chainId) throws Exception {
+        
         ModuleId moduleId = new ModuleId(packageAddress, new Identifier("dex_accounts_entry"));
         
         List<TransactionArgument> functionArgs = new ArrayList<>();
@@ -90,25 +198,27 @@ public class DecibelTransactions {
             functionArgs
         );
         
-        long sequenceNumber = client.getNextSequenceNumber(account.getAccountAddress());
-        
-        RawTransaction rawTx = new RawTransaction(
-            account.getAccountAddress(),
-            sequenceNumber,
-            payload,
-            1000000L,
-            100L,
-            System.currentTimeMillis() / 1000 + 3600,
-            chainId
-        );
-        
-        SignedTransaction signedTx = new SignedTransaction(
-            rawTx,
-            account.signTransactionWithAuthenticator(rawTx)
-        );
-        
-        PendingTransaction pendingTx = client.submitTransaction(signedTx);
-        client.waitForTransaction(pendingTx.getHash());
+        return submitAt(client, account, payload, sequenceNumber, chainId);
+    }
+    
+    /**
+     * @return Next sequence number for the account, read through the fullnode pool if one is set
+     */
+    public static long getNextSequenceNumber(AptosClient client, Ed25519Account account) throws Exception {
+        return nextSequenceNumber(client, account, AdaptiveLimiter.Priority.QUOTE);
+    }
+    
+    /**
+     * Wait for a transaction returned by one of the {@code submit...} methods to commit. Waits hold no
+     * limiter slot, so they never delay submissions or fail for want of a permit.
+     */
+    public static void waitForTransaction(AptosClient client, String txHash) throws Exception {
+        FullnodePool pool = fullnodePool;
+        if (pool != null) {
+            pool.waitForTransaction(txHash, COMMIT_TIMEOUT_MILLIS);
+        } else {
+            client.waitForTransaction(txHash);
+        }
     }
     
     /**
@@ -127,61 +237,167 @@ public class DecibelTransactions {
             boolean isReduceOnly,
             int chainId) throws Exception {
         
-        ModuleId moduleId = new ModuleId(packageAddress, new Identifier("dex_accounts_entry"));
-        
-        List<TransactionArgument> functionArgs = new ArrayList<>();
-        functionArgs.add(new TransactionArgument.AccountAddress(subaccountAddr));
-        functionArgs.add(new TransactionArgument.AccountAddress(marketAddress));
-        functionArgs.add(new TransactionArgument.U64(price));
-        functionArgs.add(new TransactionArgument.U64(size));
-        functionArgs.add(new TransactionArgument.Bool(isBuy));
-        functionArgs.add(new TransactionArgument.U8((byte) timeInForce));
-        functionArgs.add(new TransactionArgument.Bool(isReduceOnly));
-        // Optional parameters
-        functionArgs.add(MoveOption.<TransactionArgument.String>empty());
-        functionArgs.add(MoveOption.<TransactionArgument.U64>empty());
-        functionArgs.add(MoveOption.<TransactionArgument.U64>empty());
-        functionArgs.add(MoveOption.<TransactionArgument.U64>empty());
-        functionArgs.add(MoveOption.<TransactionArgument.U64>empty());
-        functionArgs.add(MoveOption.<TransactionArgument.U64>empty());
-        functionArgs.add(MoveOption.<TransactionArgument.AccountAddress>empty());
-        functionArgs.add(MoveOption.<TransactionArgument.U64>empty());
-        
-        TransactionPayload payload = new EntryFunctionPayload(
-            moduleId,
-            new Identifier("place_order_to_subaccount"),
-            Arrays.asList(),
-            functionArgs
-        );
-        
-        long sequenceNumber = client.getNextSequenceNumber(account.getAccountAddress());
+        RiskEngine engine = riskEngine;
+        if (engine != null) {
+            int result = engine.reserveOrder(subaccountAddr, marketAddress, price, size, isBuy, isReduceOnly);
+            if (result != RiskEngine.OK) {
+                throw new RiskRejectedException(result);
+            }
+        }
+        
+        String txHash;
+        try {
+            OrderPayloadTemplate template = new OrderPayloadTemplate(packageAddress, subaccountAddr, marketAddress);
+            long sequenceNumber = nextSequenceNumber(client, account, AdaptiveLimiter.Priority.QUOTE);
+            txHash = sendOrder(client, account, template, price, size, isBuy, timeInForce, isReduceOnly,
+                sequenceNumber, chainId);
+            waitForCommit(client, txHash, journal, marketAddress, -1, sequenceNumber);
+        } catch (Exception e) {
+            if (engine != null) {
+                engine.releaseOrder(subaccountAddr, marketAddress, price, size, isBuy);
+            }
+            throw e;
+        }
+        if (engine != null) {
+            engine.onOrderAccepted(subaccountAddr, marketAddress, price, size, isBuy, timeInForce);
+        }
         
-        RawTransaction rawTx = new RawTransaction(
-            account.getAccountAddress(),
-            sequenceNumber,
-            payload,
-            1000000L,
-            100L,
-            System.currentTimeMillis() / 1000 + 3600,
-            chainId
-        );
+        return txHash;
+    }
+    
+    /**
+     * Submit an order from a pre-built template at an explicit account sequence number, without waiting for
+     * it to commit. For latency-sensitive callers that reserve sequence numbers ahead of time. Pass the hash
+     * to {@link #awaitOrderCommit} so the order's risk reservation is settled.
+     *
+     * @return Transaction hash
+     */
+    public static String submitOrder(
+            AptosClient client,
+            Ed25519Account account,
+            OrderPayloadTemplate template,
+            long price,
+            long size,
+            boolean isBuy,
+            int timeInForce,
+            boolean isReduceOnly,
+            long sequenceNumber,
+            int chainId) throws Exception {
         
-        SignedTransaction signedTx = new SignedTransaction(
-            rawTx,
-            account.signTransactionWithAuthenticator(rawTx)
-        );
+        RiskEngine engine = riskEngine;
+        if (engine != null) {
+            int result = engine.reserveOrder(template.getSubaccountAddr(), template.getMarketAddr(), price, size,
+                isBuy, isReduceOnly);
+            if (result != RiskEngine.OK) {
+                throw new RiskRejectedException(result);
+            }
+        }
+        try {
+            return sendOrder(client, account, template, price, size, isBuy, timeInForce, isReduceOnly,
+                sequenceNumber, chainId);
+        } catch (Exception e) {
+            if (engine != null) {
+                engine.releaseOrder(template.getSubaccountAddr(), template.getMarketAddr(), price, size, isBuy);
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Wait off the calling thread for an order sent with {@link #submitOrder} to commit. Does what
+     * {@link #placeOrder} does after submitting: the outcome is journaled and recorded as a commit event,
+     * and the order's risk reservation is kept as resting exposure if it commits and released if not.
+     *
+     * @return Future completed once the order commits, or exceptionally if it does not
+     */
+    public static CompletableFuture<Void> awaitOrderCommit(
+            AptosClient client,
+            String txHash,
+            OrderPayloadTemplate template,
+            long price,
+            long size,
+            boolean isBuy,
+            int timeInForce,
+            long sequenceNumber) {
+        
+        OrderJournal orderJournal = journal;
+        RiskEngine engine = riskEngine;
+        CompletableFuture<Void> committed = new CompletableFuture<>();
+        commitWaiters.execute(() -> {
+            try {
+                waitForCommit(client, txHash, orderJournal, template.getMarketAddr(), -1, sequenceNumber);
+            } catch (Throwable e) {
+                if (engine != null) {
+                    engine.releaseOrder(template.getSubaccountAddr(), template.getMarketAddr(), price, size, isBuy);
+                }
+                committed.completeExceptionally(e);
+                return;
+            }
+            if (engine != null) {
+                engine.onOrderAccepted(template.getSubaccountAddr(), template.getMarketAddr(), price, size,
+                    isBuy, timeInForce);
+            }
+            committed.complete(null);
+        });
+        return committed;
+    }
+    
+    /**
+     * Submit bulk orders to Decibel DEX.
+     */
+    public static String placeBulkOrders(
+            AptosClient client,
+            Ed25519Account account,
+            AccountAddress packageAddress,
+            AccountAddress subaccountAddr,
+            AccountAddress marketAddress,
+            long sequenceNumber,
+            List<Long> bidPrices,
+            List<Long> bidSizes,
+            List<Long> askPrices,
+            List<Long> askSizes,
+            int chainId) throws Exception {
         
-        PendingTransaction pendingTx = client.submitTransaction(signedTx);
-        String txHash = pendingTx.getHash();
-        client.waitForTransaction(txHash);
+        RiskEngine engine = riskEngine;
+        if (engine != null) {
+            int result = engine.reserveBulk(subaccountAddr, marketAddress, bidPrices, bidSizes, askPrices,
+                askSizes);
+            if (result != RiskEngine.OK) {
+                throw new RiskRejectedException(result);
+            }
+        }
+        
+        String txHash;
+        try {
+            AdaptiveLimiter.Priority priority = bulkPriority(bidPrices, askPrices);
+            long accountSequenceNumber = nextSequenceNumber(client, account, priority);
+            SignedTransaction signedTx = signBulkOrders(account, packageAddress, subaccountAddr, marketAddress,
+                sequenceNumber, bidPrices, bidSizes, askPrices, askSizes, accountSequenceNumber, chainId);
+            txHash = submitBulkOrders(client, signedTx, subaccountAddr, marketAddress, sequenceNumber,
+                accountSequenceNumber, bidPrices, bidSizes, askPrices, askSizes);
+            waitForCommit(client, txHash, journal, marketAddress, sequenceNumber, accountSequenceNumber);
+        } catch (Exception e) {
+            if (engine != null) {
+                engine.releaseBulk(subaccountAddr, marketAddress);
+            }
+            throw e;
+        }
+        if (engine != null) {
+            engine.onBulkAccepted(subaccountAddr, marketAddress, bidPrices, bidSizes, askPrices, askSizes);
+        }
         
         return txHash;
     }
     
     /**
-     * Submit bulk orders to Decibel DEX.
+     * Check, sign and submit a bulk order at an explicit account sequence number, without waiting for it to
+     * commit. For callers that hand out sequence numbers themselves. Pass the hash and the ladder to
+     * {@link #awaitBulkCommit(AptosClient, String, AccountAddress, AccountAddress, long, long, List, List, List, List)}
+     * so the ladder's risk reservation is settled.
+     *
+     * @return Transaction hash
      */
-    public static String placeBulkOrders(
+    public static String submitBulkOrders(
             AptosClient client,
             Ed25519Account account,
             AccountAddress packageAddress,
@@ -192,8 +408,152 @@ public class DecibelTransactions {
             List<Long> bidSizes,
             List<Long> askPrices,
             List<Long> askSizes,
+            long accountSequenceNumber,
             int chainId) throws Exception {
         
+        RiskEngine engine = riskEngine;
+        if (engine != null) {
+            int result = engine.reserveBulk(subaccountAddr, marketAddress, bidPrices, bidSizes, askPrices,
+                askSizes);
+            if (result != RiskEngine.OK) {
+                throw new RiskRejectedException(result);
+            }
+        }
+        
+        try {
+            SignedTransaction signedTx = signBulkOrders(account, packageAddress, subaccountAddr, marketAddress,
+                sequenceNumber, bidPrices, bidSizes, askPrices, askSizes, accountSequenceNumber, chainId);
+            return submitBulkOrders(client, signedTx, subaccountAddr, marketAddress, sequenceNumber,
+                accountSequenceNumber, bidPrices, bidSizes, askPrices, askSizes);
+        } catch (Exception e) {
+            if (engine != null) {
+                engine.releaseBulk(subaccountAddr, marketAddress);
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Like the risk-checked {@code submitBulkOrders}, but the calling thread only builds the transaction and
+     * queues it for signing. Submission runs on {@code submitter} once the signature is ready, so no thread
+     * waits on the signing stage. The risk reservation is released if signing or submission fails.
+     *
+     * @return Future completed with the transaction hash
+     * @throws RiskRejectedException If the ladder fails the risk check; nothing is signed or reserved
+     */
+    public static CompletableFuture<String> submitBulkOrdersAsync(
+            AptosClient client,
+            Ed25519Account account,
+            AccountAddress packageAddress,
+            AccountAddress subaccountAddr,
+            AccountAddress marketAddress,
+            long sequenceNumber,
+            List<Long> bidPrices,
+            List<Long> bidSizes,
+            List<Long> askPrices,
+            List<Long> askSizes,
+            long accountSequenceNumber,
+            int chainId,
+            Executor submitter) throws RiskRejectedException {
+        
+        RiskEngine engine = riskEngine;
+        if (engine != null) {
+            int result = engine.reserveBulk(subaccountAddr, marketAddress, bidPrices, bidSizes, askPrices,
+                askSizes);
+            if (result != RiskEngine.OK) {
+                throw new RiskRejectedException(result);
+            }
+        }
+        
+        CompletableFuture<String> submitted = signBulkOrdersAsync(account, packageAddress, subaccountAddr,
+                marketAddress, sequenceNumber, bidPrices, bidSizes, askPrices, askSizes, accountSequenceNumber,
+                chainId)
+            .thenApplyAsync(signedTx -> {
+                try {
+                    return submitBulkOrders(client, signedTx, subaccountAddr, marketAddress, sequenceNumber,
+                        accountSequenceNumber, bidPrices, bidSizes, askPrices, askSizes);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, submitter);
+        if (engine != null) {
+            submitted.whenComplete((txHash, e) -> {
+                if (e != null) {
+                    engine.releaseBulk(subaccountAddr, marketAddress);
+                }
+            });
+        }
+        return submitted;
+    }
+    
+    /**
+     * Build and sign a bulk order at an explicit account sequence number, without risk checks or submission.
+     * For pipelines that sign and submit on separate threads.
+     */
+    public static SignedTransaction signBulkOrders(
+            Ed25519Account account,
+            AccountAddress packageAddress,
+            AccountAddress subaccountAddr,
+            AccountAddress marketAddress,
+            long sequenceNumber,
+            List<Long> bidPrices,
+            List<Long> bidSizes,
+            List<Long> askPrices,
+            List<Long> askSizes,
+            long accountSequenceNumber,
+            int chainId) throws Exception {
+        
+        RawTransaction rawTx = buildBulkOrderTransaction(account, packageAddress, subaccountAddr, marketAddress,
+            sequenceNumber, bidPrices, bidSizes, askPrices, askSizes, accountSequenceNumber, chainId);
+        OrderEvents.Sign signEvent = new OrderEvents.Sign();
+        signEvent.begin();
+        SignedTransaction signedTx = signTransaction(account, rawTx);
+        signEvent.complete(marketAddress, sequenceNumber, accountSequenceNumber, null);
+        return signedTx;
+    }
+    
+    /**
+     * Build a bulk order on the calling thread and queue it on the signing stage, without waiting for the
+     * signature. Signs inline, and returns a completed future, if no stage is set or the stage cannot take it.
+     *
+     * @return Future completed with the signed transaction, or exceptionally if signing fails
+     */
+    public static CompletableFuture<SignedTransaction> signBulkOrdersAsync(
+            Ed25519Account account,
+            AccountAddress packageAddress,
+            AccountAddress subaccountAddr,
+            AccountAddress marketAddress,
+            long sequenceNumber,
+            List<Long> bidPrices,
+            List<Long> bidSizes,
+            List<Long> askPrices,
+            List<Long> askSizes,
+            long accountSequenceNumber,
+            int chainId) {
+        
+        RawTransaction rawTx = buildBulkOrderTransaction(account, packageAddress, subaccountAddr, marketAddress,
+            sequenceNumber, bidPrices, bidSizes, askPrices, askSizes, accountSequenceNumber, chainId);
+        OrderEvents.Sign signEvent = new OrderEvents.Sign();
+        signEvent.begin();
+        return signTransactionAsync(account, rawTx).whenComplete((signedTx, e) ->
+            signEvent.complete(marketAddress, sequenceNumber, accountSequenceNumber, null));
+    }
+    
+    private static RawTransaction buildBulkOrderTransaction(
+            Ed25519Account account,
+            AccountAddress packageAddress,
+            AccountAddress subaccountAddr,
+            AccountAddress marketAddress,
+            long sequenceNumber,
+            List<Long> bidPrices,
+            List<Long> bidSizes,
+            List<Long> askPrices,
+            List<Long> askSizes,
+            long accountSequenceNumber,
+            int chainId) {
+        
+        OrderEvents.PayloadBuild buildEvent = new OrderEvents.PayloadBuild();
+        buildEvent.begin();
         ModuleId moduleId = new ModuleId(packageAddress, new Identifier("dex_accounts_entry"));
         
         List<TransactionArgument> functionArgs = new ArrayList<>();
@@ -216,8 +576,7 @@ public class DecibelTransactions {
             Arrays.asList(),
             functionArgs
         );
-        
-        long accountSequenceNumber = client.getNextSequenceNumber(account.getAccountAddress());
+        buildEvent.complete(marketAddress, sequenceNumber, -1, null);
         
         RawTransaction rawTx = new RawTransaction(
             account.getAccountAddress(),
@@ -228,19 +587,118 @@ public class DecibelTransactions {
             System.currentTimeMillis() / 1000 + 3600,
             chainId
         );
-        
-        SignedTransaction signedTx = new SignedTransaction(
-            rawTx,
-            account.signTransactionWithAuthenticator(rawTx)
-        );
-        
-        PendingTransaction pendingTx = client.submitTransaction(signedTx);
-        String txHash = pendingTx.getHash();
-        client.waitForTransaction(txHash);
-        
+        return rawTx;
+    }
+    
+    /**
+     * Submit a signed bulk order and journal it, without waiting for it to commit. The ladder is only used
+     * for the journal and to pick the submission priority. Pass the hash to {@link #awaitBulkCommit} to
+     * journal the outcome.
+     *
+     * @return Transaction hash
+     */
+    public static String submitBulkOrders(
+            AptosClient client,
+            SignedTransaction signedTx,
+            AccountAddress subaccountAddr,
+            AccountAddress marketAddress,
+            long sequenceNumber,
+            long accountSequenceNumber,
+            List<Long> bidPrices,
+            List<Long> bidSizes,
+            List<Long> askPrices,
+            List<Long> askSizes) throws Exception {
+        
+        OrderJournal orderJournal = journal;
+        OrderEvents.Submit submitEvent = new OrderEvents.Submit();
+        submitEvent.begin();
+        String txHash;
+        try {
+            txHash = submit(client, signedTx, bulkPriority(bidPrices, askPrices));
+        } catch (Exception e) {
+            submitEvent.complete(marketAddress, sequenceNumber, accountSequenceNumber, null);
+            if (orderJournal != null) {
+                orderJournal.recordBulk(subaccountAddr, marketAddress, sequenceNumber, accountSequenceNumber,
+                    bidPrices, bidSizes, askPrices, askSizes, null);
+            }
+            throw e;
+        }
+        submitEvent.complete(marketAddress, sequenceNumber, accountSequenceNumber, txHash);
+        if (orderJournal != null) {
+            orderJournal.recordBulk(subaccountAddr, marketAddress, sequenceNumber, accountSequenceNumber,
+                bidPrices, bidSizes, askPrices, askSizes, txHash);
+        }
+        recordBulkInStore(marketAddress, bidPrices, bidSizes, askPrices, askSizes);
         return txHash;
     }
     
+    /**
+     * Wait off the calling thread for a bulk order sent with {@link #submitBulkOrders} to commit. The outcome
+     * is journaled and recorded as a commit event. Risk is left to the caller.
+     *
+     * @return Future completed once the bulk order commits, or exceptionally if it does not
+     */
+    public static CompletableFuture<Void> awaitBulkCommit(
+            AptosClient client,
+            String txHash,
+            AccountAddress marketAddress,
+            long sequenceNumber,
+            long accountSequenceNumber) {
+        
+        OrderJournal orderJournal = journal;
+        CompletableFuture<Void> committed = new CompletableFuture<>();
+        commitWaiters.execute(() -> {
+            try {
+                waitForCommit(client, txHash, orderJournal, marketAddress, sequenceNumber, accountSequenceNumber);
+            } catch (Throwable e) {
+                committed.completeExceptionally(e);
+                return;
+            }
+            committed.complete(null);
+        });
+        return committed;
+    }
+    
+    /**
+     * Wait off the calling thread for a bulk order sent with the risk-checked {@code submitBulkOrders} to
+     * commit. Does what {@link #placeBulkOrders} does after submitting: the outcome is journaled and recorded
+     * as a commit event, and the ladder is kept as resting exposure if it commits and released if not.
+     *
+     * @return Future completed once the bulk order commits, or exceptionally if it does not
+     */
+    public static CompletableFuture<Void> awaitBulkCommit(
+            AptosClient client,
+            String txHash,
+            AccountAddress subaccountAddr,
+            AccountAddress marketAddress,
+            long sequenceNumber,
+            long accountSequenceNumber,
+            List<Long> bidPrices,
+            List<Long> bidSizes,
+            List<Long> askPrices,
+            List<Long> askSizes) {
+        
+        RiskEngine engine = riskEngine;
+        CompletableFuture<Void> committed = new CompletableFuture<>();
+        awaitBulkCommit(client, txHash, marketAddress, sequenceNumber, accountSequenceNumber)
+            .whenComplete((ignored, e) -> {
+                if (engine != null) {
+                    if (e == null) {
+                        engine.onBulkAccepted(subaccountAddr, marketAddress, bidPrices, bidSizes, askPrices,
+                            askSizes);
+                    } else {
+                        engine.releaseBulk(subaccountAddr, marketAddress);
+                    }
+                }
+                if (e == null) {
+                    committed.complete(null);
+                } else {
+                    committed.completeExceptionally(e);
+                }
+            });
+        return committed;
+    }
+    
     /**
      * Cancel bulk orders by submitting empty bid and ask lists.
      * This effectively cancels all orders for the given sequence number.
@@ -262,4 +720,220 @@ public class DecibelTransactions {
             client, account, packageAddress, subaccountAddr, marketAddress,
             sequenceNumber, emptyPrices, emptySizes, emptyPrices, emptySizes, chainId);
     }
-}
+    
+    /**
+     * Build, sign, submit and journal an order that has already passed risk checks.
+     */
+    private static String sendOrder(AptosClient client, Ed25519Account account, OrderPayloadTemplate template,
+                                    long price, long size, boolean isBuy, int timeInForce, boolean isReduceOnly,
+                                    long sequenceNumber, int chainId) throws Exception {
+        AccountAddress marketAddress = template.getMarketAddr();
+        
+        OrderEvents.PayloadBuild buildEvent = new OrderEvents.PayloadBuild();
+        buildEvent.begin();
+        TransactionPayload payload = template.build(price, size, isBuy, timeInForce, isReduceOnly);
+        buildEvent.complete(marketAddress, -1, -1, null);
+        
+        RawTransaction rawTx = new RawTransaction(
+            account.getAccountAddress(),
+            sequenceNumber,
+            payload,
+            1000000L,
+            100L,
+            System.currentTimeMillis() / 1000 + 3600,
+            chainId
+        );
+        
+        OrderEvents.Sign signEvent = new OrderEvents.Sign();
+        signEvent.begin();
+        SignedTransaction signedTx = signTransaction(account, rawTx);
+        signEvent.complete(marketAddress, -1, sequenceNumber, null);
+        
+        OrderJournal orderJournal = journal;
+        OrderEvents.Submit submitEvent = new OrderEvents.Submit();
+        submitEvent.begin();
+        String txHash;
+        try {
+            txHash = submit(client, signedTx, AdaptiveLimiter.Priority.QUOTE);
+        } catch (Exception e) {
+            submitEvent.complete(marketAddress, -1, sequenceNumber, null);
+            if (orderJournal != null) {
+                orderJournal.recordOrder(template.getSubaccountAddr(), marketAddress, sequenceNumber,
+                    price, size, isBuy, timeInForce, isReduceOnly, null);
+            }
+            throw e;
+        }
+        submitEvent.complete(marketAddress, -1, sequenceNumber, txHash);
+        if (orderJournal != null) {
+            orderJournal.recordOrder(template.getSubaccountAddr(), marketAddress, sequenceNumber,
+                price, size, isBuy, timeInForce, isReduceOnly, txHash);
+        }
+        recordOrderInStore(marketAddress, isBuy, price, size);
+        return txHash;
+    }
+    
+    /**
+     * Append an accepted order to the fill store's orders table, if one is set.
+     */
+    private static void recordOrderInStore(AccountAddress marketAddress, boolean isBuy, long price, long size) {
+        FillStore store = fillStore;
+        if (store == null) {
+            return;
+        }
+        try {
+            store.appendOrder(System.currentTimeMillis(), marketAddress, isBuy, price, size);
+        } catch (IOException e) {
+            // History is not on the trading path; the order is already out
+            logger.error("Failed to record order in {}: {}", AddressTable.hex(marketAddress), e.getMessage());
+        }
+    }
+    
+    /**
+     * Append each level of an accepted bulk order to the fill store's orders table, if one is set.
+     */
+    private static void recordBulkInStore(AccountAddress marketAddress, List<Long> bidPrices, List<Long> bidSizes,
+                                          List<Long> askPrices, List<Long> askSizes) {
+        FillStore store = fillStore;
+        if (store == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            for (int i = 0; i < bidPrices.size(); i++) {
+                store.appendOrder(now, marketAddress, true, bidPrices.get(i), bidSizes.get(i));
+            }
+            for (int i = 0; i < askPrices.size(); i++) {
+                store.appendOrder(now, marketAddress, false, askPrices.get(i), askSizes.get(i));
+            }
+        } catch (IOException e) {
+            // History is not on the trading path; the bulk order is already out
+            logger.error("Failed to record bulk order in {}: {}", AddressTable.hex(marketAddress), e.getMessage());
+        }
+    }
+    
+    private static String submitAt(AptosClient client, Ed25519Account account, TransactionPayload payload,
+                                   long sequenceNumber, int chainId) throws Exception {
+        RawTransaction rawTx = new RawTransaction(
+            account.getAccountAddress(),
+            sequenceNumber,
+            payload,
+            1000000L,
+            100L,
+            System.currentTimeMillis() / 1000 + 3600,
+            chainId
+        );
+        
+        SignedTransaction signedTx = signTransaction(account, rawTx);
+        return submit(client, signedTx, AdaptiveLimiter.Priority.QUOTE);
+    }
+    
+    /**
+     * An empty ladder is a cancel, which must get through even when the endpoint is shedding load.
+     */
+    private static AdaptiveLimiter.Priority bulkPriority(List<Long> bidPrices, List<Long> askPrices) {
+        return bidPrices.isEmpty() && askPrices.isEmpty()
+            ? AdaptiveLimiter.Priority.CANCEL
+            : AdaptiveLimiter.Priority.QUOTE;
+    }
+    
+    private static long nextSequenceNumber(AptosClient client, Ed25519Account account,
+                                           AdaptiveLimiter.Priority priority) throws Exception {
+        FullnodePool pool = fullnodePool;
+        return pool != null
+            ? pool.getNextSequenceNumber(account.getAccountAddress(), priority)
+            : limiterFor(client).execute(priority, () -> client.getNextSequenceNumber(account.getAccountAddress()));
+    }
+    
+    private static String submit(AptosClient client, SignedTransaction signedTx,
+                                 AdaptiveLimiter.Priority priority) throws Exception {
+        FullnodePool pool = fullnodePool;
+        if (pool != null) {
+            return pool.submitHedged(signedTx, hedgeFanout, priority);
+        }
+        PendingTransaction pendingTx = limiterFor(client).execute(priority,
+            () -> client.submitTransaction(signedTx));
+        return pendingTx.getHash();
+    }
+    
+    /**
+     * Clients not made by {@link #createClient} have no known URL and share one limiter between them.
+     */
+    private static AdaptiveLimiter limiterFor(AptosClient client) {
+        AdaptiveLimiter limiter = clientLimiters.get(client);
+        return limiter != null ? limiter : AdaptiveLimiter.forEndpoint("fullnode");
+    }
+    
+    /**
+     * Sign a raw transaction, on the signing stage if one is set.
+     */
+    private static SignedTransaction signTransaction(Ed25519Account account, RawTransaction rawTx) throws Exception {
+        try {
+            return signTransactionAsync(account, rawTx).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+    
+    /**
+     * Queue a raw transaction on the signing stage if one is set. Falls back to signing inline if the stage
+     * rejects it or closes with it still queued, and if the workers have not picked it up within
+     * {@link #SIGN_TIMEOUT_MILLIS}, so cancels still go out while the stage is saturated or stalled.
+     */
+    private static CompletableFuture<SignedTransaction> signTransactionAsync(Ed25519Account account,
+                                                                            RawTransaction rawTx) {
+        SigningStage stage = signingStage;
+        if (stage != null) {
+            try {
+                // orTimeout completes the queued job's own future, so a worker that reaches it later skips it
+                return stage.sign(account, rawTx)
+                    .orTimeout(SIGN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                    .exceptionallyCompose(e -> {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null
+                            ? e.getCause() : e;
+                        if (cause instanceof RejectedExecutionException || cause instanceof TimeoutException) {
+                            return signInline(account, rawTx);
+                        }
+                        return CompletableFuture.failedFuture(cause);
+                    });
+            } catch (RejectedExecutionException e) {
+                // Stage is saturated or shutting down; sign inline below
+            }
+        }
+        return signInline(account, rawTx);
+    }
+    
+    private static CompletableFuture<SignedTransaction> signInline(Ed25519Account account, RawTransaction rawTx) {
+        try {
+            return CompletableFuture.completedFuture(new SignedTransaction(
+                rawTx,
+                account.signTransactionWithAuthenticator(rawTx)
+            ));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * Wait for a submitted transaction to commit, journaling the outcome if a journal is set.
+     */
+    private static void waitForCommit(AptosClient client, String txHash, OrderJournal orderJournal,
+                                      AccountAddress marketAddress, long bulkSequenceNumber,
+                                      long accountSequenceNumber) throws Exception {
+        OrderEvents.Commit commitEvent = new OrderEvents.Commit();
+        commitEvent.begin();
+        try {
+            waitForTransaction(client, txHash);
+        } catch (Exception e) {
+            commitEvent.complete(marketAddress, bulkSequenceNumber, accountSequenceNumber, txHash);
+            if (orderJournal != null) {
+                orderJournal.recordOutcome(txHash, false);
+            }
+            throw e;
+        }
+        commitEvent.setCommitted(true);
+        commitEvent.complete(marketAddress, bulkSequenceNumber, accountSequenceNumber, txHash);
+        if (orderJournal != null) {
+            orderJournal.recordOutcome(txHash, true);
+        }
+    }
+}
\ No newline at end of file
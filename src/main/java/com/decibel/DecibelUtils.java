@@ -1,6 +1,7 @@
 package com.decibel;
 
 import com.aptoslabs.japtos.core.AccountAddress;
+import com.aptoslabs.japtos.transaction.SignedTransaction;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -13,6 +14,10 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -22,10 +27,24 @@ import java.util.List;
 public class DecibelUtils {
     private static final String FAUCET_URL = "https://faucet-dev-netna-us-central1-410192433417.us-central1.run.app";
     
+    /**
+     * Holder so Jackson is only loaded by commands that call the trading API, and the mapper is shared.
+     */
+    static final class Json {
+        static final ObjectMapper MAPPER = new ObjectMapper();
+    }
+    
     /**
      * Fund account from the Netna faucet.
      */
     public static void fundAccountFromFaucet(AccountAddress address) throws IOException {
+        AdaptiveLimiter.forEndpoint(FAUCET_URL).execute(AdaptiveLimiter.Priority.QUOTE, () -> {
+            requestFaucet(address);
+            return null;
+        });
+    }
+    
+    private static void requestFaucet(AccountAddress address) throws IOException {
         String urlString = String.format("%s/mint?amount=10000000000&address=%s", 
             FAUCET_URL, address.toHexString().replace("0x", ""));
         
@@ -43,6 +62,9 @@ public class DecibelUtils {
         }
         
         int responseCode = conn.getResponseCode();
+        if (responseCode == 429) {
+            throw new RateLimitedException("Faucet rate limited", retryAfterMillis(conn));
+        }
         if (responseCode != 200) {
             BufferedReader reader = new BufferedReader(
                 new InputStreamReader(conn.getErrorStream()));
@@ -105,6 +127,37 @@ public class DecibelUtils {
         }
     }
     
+    /**
+     * Compute the hash a fullnode assigns to a signed transaction:
+     * {@code sha3-256(sha3-256("APTOS::Transaction") + 0x00 + BCS(signedTx))}, where 0x00 tags a user
+     * transaction.
+     *
+     * @return The hash as 0x-prefixed hex, or null if the transaction could not be serialized
+     */
+    public static String transactionHash(SignedTransaction signedTx) {
+        byte[] bcs;
+        try {
+            bcs = signedTx.bcsToBytes();
+        } catch (Exception e) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA3-256");
+            byte[] prefix = digest.digest("APTOS::Transaction".getBytes(StandardCharsets.UTF_8));
+            digest.update(prefix);
+            digest.update((byte) 0x00); // Transaction::UserTransaction
+            digest.update(bcs);
+            byte[] hash = digest.digest();
+            StringBuilder hex = new StringBuilder("0x");
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA3-256 algorithm not available", e);
+        }
+    }
+    
     /**
      * Create an object address from a publisher address and seed.
      */
@@ -130,52 +183,68 @@ public class DecibelUtils {
      * Get the next bulk order sequence number for a subaccount on a specific market.
      * Queries the trading API to get the latest bulk order and returns the next sequence number.
      * Returns 0 if no bulk orders exist yet.
+     *
+     * @throws RateLimitedException If the trading API rate-limits the request or the local limiter sheds it
      */
     public static long getBulkOrderSequenceNumber(
             String tradingApiUrl,
             AccountAddress subaccountAddr,
             AccountAddress marketAddr) throws IOException {
+        OrderEvents.TradingApi apiEvent = new OrderEvents.TradingApi();
+        apiEvent.setEndpoint("/api/v1/bulk_orders");
+        apiEvent.begin();
+        long next = -1;
         try {
-            // Query the trading API for the latest bulk order
-            String urlString = String.format("%s/api/v1/bulk_orders?user=0x%s&market=0x%s",
-                tradingApiUrl,
-                subaccountAddr.toHexString().replace("0x", ""),
-                marketAddr.toHexString().replace("0x", ""));
-
-            URL url = new URL(urlString);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setConnectTimeout(10000);
-            conn.setReadTimeout(10000);
-
-            int responseCode = conn.getResponseCode();
-            if (responseCode == 404) {
-                // No bulk orders exist yet, start at 0
-                return 0;
-            }
-
-            if (responseCode != 200) {
-                throw new IOException("Failed to fetch bulk order: " + responseCode);
+            next = AdaptiveLimiter.forEndpoint(tradingApiUrl).execute(AdaptiveLimiter.Priority.QUOTE,
+                () -> fetchBulkOrderSequenceNumber(tradingApiUrl, subaccountAddr, marketAddr));
+            return next;
+        } finally {
+            apiEvent.complete(marketAddr, next, -1, null);
+        }
+    }
+    
+    /**
+     * Look up the subaccount's bulk order on a market, for callers that must not act on a guessed
+     * sequence number.
+     *
+     * @return Next bulk order sequence number, or -1 if the subaccount has no bulk order with resting
+     *         levels on the market
+     * @throws IOException If the lookup fails for any reason; unlike {@link #getBulkOrderSequenceNumber}
+     *         this never falls back to 0
+     */
+    public static long getOpenBulkOrderSequenceNumber(
+            String tradingApiUrl,
+            AccountAddress subaccountAddr,
+            AccountAddress marketAddr) throws IOException {
+        OrderEvents.TradingApi apiEvent = new OrderEvents.TradingApi();
+        apiEvent.setEndpoint("/api/v1/bulk_orders");
+        apiEvent.begin();
+        long next = -1;
+        try {
+            JsonNode bulkOrder = AdaptiveLimiter.forEndpoint(tradingApiUrl).execute(AdaptiveLimiter.Priority.QUOTE,
+                () -> fetchBulkOrder(tradingApiUrl, subaccountAddr, marketAddr));
+            if (bulkOrder == null || !hasRestingLevels(bulkOrder)) {
+                return -1;
             }
-
-            // Read response
-            BufferedReader reader = new BufferedReader(
-                new InputStreamReader(conn.getInputStream()));
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
+            long currentSeqNum = bulkOrder.path("sequence_number").asLong(-1);
+            if (currentSeqNum < 0) {
+                throw new IOException("Bulk order has no sequence number: " + bulkOrder);
             }
-            reader.close();
-            conn.disconnect();
-
-            // Parse JSON response
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode root = mapper.readTree(response.toString());
+            next = currentSeqNum + 1;
+            return next;
+        } finally {
+            apiEvent.complete(marketAddr, next, -1, null);
+        }
+    }
 
-            // Response is an array, get the first element
-            if (root.isArray() && root.size() > 0) {
-                long currentSeqNum = root.get(0).path("sequence_number").asLong(-1);
+    private static long fetchBulkOrderSequenceNumber(
+            String tradingApiUrl,
+            AccountAddress subaccountAddr,
+            AccountAddress marketAddr) throws IOException {
+        try {
+            JsonNode bulkOrder = fetchBulkOrder(tradingApiUrl, subaccountAddr, marketAddr);
+            if (bulkOrder != null) {
+                long currentSeqNum = bulkOrder.path("sequence_number").asLong(-1);
                 if (currentSeqNum >= 0) {
                     // Return the next sequence number
                     return currentSeqNum + 1;
@@ -184,12 +253,74 @@ public class DecibelUtils {
 
             // No bulk order found, start at 0
             return 0;
+        } catch (RateLimitedException e) {
+            // Surface rate limits so callers back off instead of reusing sequence number 0
+            throw e;
         } catch (Exception e) {
-            // If any error, start at 0
+            // If any other error, start at 0
             return 0;
         }
     }
 
+    /**
+     * @return The latest bulk order of the subaccount on the market, or null if it has none
+     */
+    private static JsonNode fetchBulkOrder(
+            String tradingApiUrl,
+            AccountAddress subaccountAddr,
+            AccountAddress marketAddr) throws IOException {
+        // Query the trading API for the latest bulk order
+        String urlString = tradingApiUrl + "/api/v1/bulk_orders?user=" + AddressTable.hex(subaccountAddr)
+            + "&market=" + AddressTable.hex(marketAddr);
+
+        URL url = new URL(urlString);
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod("GET");
+        conn.setConnectTimeout(10000);
+        conn.setReadTimeout(10000);
+
+        int responseCode = conn.getResponseCode();
+        if (responseCode == 429) {
+            throw new RateLimitedException("Trading API rate limited", retryAfterMillis(conn));
+        }
+        if (responseCode == 404) {
+            // No bulk orders exist yet
+            return null;
+        }
+
+        if (responseCode != 200) {
+            throw new IOException("Failed to fetch bulk order: " + responseCode);
+        }
+
+        // Read response
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(conn.getInputStream()));
+        StringBuilder response = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            response.append(line);
+        }
+        reader.close();
+        conn.disconnect();
+
+        // Response is an array, get the first element
+        JsonNode root = Json.MAPPER.readTree(response.toString());
+        return root.isArray() && root.size() > 0 ? root.get(0) : null;
+    }
+
+    /**
+     * A cancelled bulk order is kept with empty ladders. Responses that don't carry the ladders count as
+     * resting, so nothing is skipped on a guess.
+     */
+    private static boolean hasRestingLevels(JsonNode bulkOrder) {
+        JsonNode bids = bulkOrder.get("bid_prices");
+        JsonNode asks = bulkOrder.get("ask_prices");
+        if (bids == null || asks == null || !bids.isArray() || !asks.isArray()) {
+            return true;
+        }
+        return bids.size() > 0 || asks.size() > 0;
+    }
+
     /**
      * Query the trading API for all available markets and their configurations.
      *
@@ -202,6 +333,18 @@ public class DecibelUtils {
     }
 
     public static List<MarketConfig> getMarkets(String tradingApiUrl, String apiKey) throws IOException {
+        OrderEvents.TradingApi apiEvent = new OrderEvents.TradingApi();
+        apiEvent.setEndpoint("/api/v1/markets");
+        apiEvent.begin();
+        try {
+            return AdaptiveLimiter.forEndpoint(tradingApiUrl).execute(AdaptiveLimiter.Priority.READ,
+                () -> fetchMarkets(tradingApiUrl, apiKey));
+        } finally {
+            apiEvent.complete(null, -1, -1, null);
+        }
+    }
+
+    private static List<MarketConfig> fetchMarkets(String tradingApiUrl, String apiKey) throws IOException {
         String urlString = String.format("%s/api/v1/markets", tradingApiUrl);
 
         URL url = new URL(urlString);
@@ -214,6 +357,9 @@ public class DecibelUtils {
         }
 
         int responseCode = conn.getResponseCode();
+        if (responseCode == 429) {
+            throw new RateLimitedException("Trading API rate limited", retryAfterMillis(conn));
+        }
         if (responseCode != 200) {
             BufferedReader reader = new BufferedReader(
                 new InputStreamReader(conn.getErrorStream()));
@@ -238,7 +384,7 @@ public class DecibelUtils {
         conn.disconnect();
 
         // Parse JSON response array
-        ObjectMapper mapper = new ObjectMapper();
+        ObjectMapper mapper = Json.MAPPER;
         JsonNode root = mapper.readTree(response.toString());
 
         List<MarketConfig> markets = new ArrayList<>();
@@ -268,8 +414,9 @@ public class DecibelUtils {
             throws IOException {
         List<MarketConfig> markets = getMarkets(tradingApiUrl, apiKey);
 
+        int marketAddrId = AddressTable.id(marketAddr);
         for (MarketConfig market : markets) {
-            if (market.getMarketAddr().equals(marketAddr)) {
+            if (market.getMarketAddrId() == marketAddrId) {
                 return market;
             }
         }
@@ -277,4 +424,26 @@ public class DecibelUtils {
         return null;
     }
 
+    /**
+     * Parse a Retry-After header given either as delay seconds or as an HTTP date.
+     *
+     * @return Delay in milliseconds, or 0 if the header is missing or malformed
+     */
+    static long retryAfterMillis(HttpURLConnection conn) {
+        String header = conn.getHeaderField("Retry-After");
+        if (header == null || header.trim().isEmpty()) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(header.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime retryAt = ZonedDateTime.parse(header.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(), retryAt).toMillis());
+            } catch (DateTimeParseException ex) {
+                return 0;
+            }
+        }
+    }
+
 }
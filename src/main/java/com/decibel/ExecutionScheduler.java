@@ -0,0 +1,495 @@
+package com.decibel;
+
+import com.aptoslabs.japtos.account.Ed25519Account;
+import com.aptoslabs.japtos.client.AptosClient;
+import com.aptoslabs.japtos.core.AccountAddress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Works large parent orders over time by slicing them into child orders (TWAP, iceberg, POV).
+ *
+ * <p>Parents wait on a hashed timing wheel rather than on threads or executor tasks. One ticker thread
+ * advances the wheel every tick and hands due parents to one sender thread. The sender sizes the next child
+ * and submits it, then puts the parent back on the wheel. Thousands of concurrent parents therefore cost
+ * one wheel entry each. A parent scheduled further out than one revolution sits in its bucket until its
+ * remaining rounds run out.</p>
+ *
+ * <p>Child sizes go through {@link MarketConfig#sizeToLotInteger}, are capped at the parent's remaining
+ * size, and are never sent below {@code minSize}. A child too small to send is carried into the next slice.
+ * A remainder below {@code minSize} at the end of a parent is left unsent.</p>
+ *
+ * <p>Children are submitted with {@link DecibelTransactions#submitOrder} at sequence numbers taken from an
+ * {@link AccountSequencer}. Commit waits happen off the sender thread through {@link DecibelTransactions#awaitOrderCommit},
+ * which journals each child's outcome. This keeps one slow commit from delaying every other parent, but it
+ * means the account must not be used by any other submitter while the scheduler runs.
+ * A child that fails to submit or commit is returned to its parent's remaining size.</p>
+ *
+ * <p>The scheduler has no fill feedback. A parent is worked by submitted size, so a committed IOC child
+ * that traded nothing still counts against the parent. Iceberg clips are therefore sent as IOC, and the
+ * next clip only goes out once the previous one has committed or failed, so clips never pile up on the
+ * book.</p>
+ */
+public class ExecutionScheduler implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionScheduler.class);
+    private static final int TIME_IN_FORCE_IOC = 2;
+
+    public enum Algo {
+        /** Equal slices over a fixed duration */
+        TWAP,
+        /** Fixed IOC clip, replenished every interval once the previous clip has settled */
+        ICEBERG,
+        /** A fixed share of traded market volume, reported through {@link #onMarketVolume} */
+        POV
+    }
+
+    private final AptosClient client;
+    private final Ed25519Account account;
+    private final AccountAddress packageAddress;
+    private final AccountAddress subaccountAddr;
+    private final int chainId;
+
+    // Timing wheel. Buckets and the current tick are owned by the ticker thread; other threads add through
+    // the pending queue.
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private volatile long currentTick;
+
+    private final BlockingQueue<ParentOrder> due = new LinkedBlockingQueue<>();
+    private final Map<AccountAddress, OrderPayloadTemplate> templates = new ConcurrentHashMap<>();
+    private final Map<AccountAddress, LongAdder> marketVolume = new ConcurrentHashMap<>();
+    private final AtomicInteger nextParentId = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Set<CompletableFuture<Void>> commits = ConcurrentHashMap.newKeySet();
+    private final Thread ticker;
+    private final Thread sender;
+    private volatile boolean running;
+
+    private final AccountSequencer sequencer;
+
+    /**
+     * @param tickMillis Wheel resolution; child timing is accurate to one tick
+     * @param wheelSize Buckets per revolution, rounded up to a power of two
+     */
+    public ExecutionScheduler(AptosClient client, Ed25519Account account, AccountAddress packageAddress,
+                              AccountAddress subaccountAddr, int chainId, long tickMillis, int wheelSize) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMillis and wheelSize must be positive");
+        }
+        this.client = client;
+        this.account = account;
+        this.packageAddress = packageAddress;
+        this.subaccountAddr = subaccountAddr;
+        this.chainId = chainId;
+        this.sequencer = new AccountSequencer(client, account);
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        int size = Integer.highestOneBit(Math.max(wheelSize - 1, 1)) << 1;
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+        this.ticker = new Thread(this::runTicker, "execution-wheel");
+        this.ticker.setDaemon(true);
+        this.sender = new Thread(this::runSender, "execution-sender");
+        this.sender.setDaemon(true);
+    }
+
+    /**
+     * Read the first sequence number and start the wheel.
+     */
+    public void start() throws Exception {
+        sequencer.sync();
+        running = true;
+        ticker.start();
+        sender.start();
+    }
+
+    /**
+     * Split a parent into equal slices spread evenly over a duration. The first slice goes out one interval
+     * after submission and the last at the end of the duration.
+     */
+    public ParentOrder twap(MarketConfig market, boolean isBuy, long totalSize, long limitPrice, int timeInForce,
+                            long durationMillis, int slices) {
+        if (slices <= 0) {
+            throw new IllegalArgumentException("slices must be positive");
+        }
+        ParentOrder parent = new ParentOrder(nextParentId.incrementAndGet(), Algo.TWAP, market, isBuy, totalSize,
+            limitPrice, timeInForce, Math.max(1, durationMillis / slices), slices, 0, 0);
+        return submit(parent);
+    }
+
+    /**
+     * Send IOC clips of {@code displaySize}, at most one awaiting commit at a time, checking every refresh
+     * interval until the parent is worked.
+     */
+    public ParentOrder iceberg(MarketConfig market, boolean isBuy, long totalSize, long limitPrice,
+                               long displaySize, long refreshMillis) {
+        if (displaySize <= 0) {
+            throw new IllegalArgumentException("displaySize must be positive");
+        }
+        ParentOrder parent = new ParentOrder(nextParentId.incrementAndGet(), Algo.ICEBERG, market, isBuy, totalSize,
+            limitPrice, TIME_IN_FORCE_IOC, refreshMillis, 0, displaySize, 0);
+        return submit(parent);
+    }
+
+    /**
+     * Every interval, top up to {@code participation} of the market volume reported since submission.
+     */
+    public ParentOrder pov(MarketConfig market, boolean isBuy, long totalSize, long limitPrice, int timeInForce,
+                           double participation, long intervalMillis) {
+        if (participation <= 0 || participation > 1) {
+            throw new IllegalArgumentException("participation must be in (0, 1]");
+        }
+        ParentOrder parent = new ParentOrder(nextParentId.incrementAndGet(), Algo.POV, market, isBuy, totalSize,
+            limitPrice, timeInForce, intervalMillis, 0, 0, participation);
+        parent.volumeAtStart = volume(market.getMarketAddr()).sum();
+        return submit(parent);
+    }
+
+    /**
+     * Report traded volume on a market, for POV parents.
+     */
+    public void onMarketVolume(AccountAddress marketAddr, long size) {
+        volume(marketAddr).add(size);
+    }
+
+    /**
+     * @return Parents still being worked
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        ticker.interrupt();
+        sender.interrupt();
+        try {
+            CompletableFuture.allOf(commits.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // Failed children are logged by their own callbacks; don't hold up shutdown for the rest
+        }
+    }
+
+    private ParentOrder submit(ParentOrder parent) {
+        templates.computeIfAbsent(parent.market.getMarketAddr(),
+            marketAddr -> new OrderPayloadTemplate(packageAddress, subaccountAddr, marketAddr));
+        active.incrementAndGet();
+        logger.info("Parent {} {} {} {} on {}", parent.id, parent.algo, parent.isBuy ? "BUY" : "SELL",
+            parent.totalSize, parent.market.getMarketName());
+        schedule(parent);
+        return parent;
+    }
+
+    private LongAdder volume(AccountAddress marketAddr) {
+        return marketVolume.computeIfAbsent(marketAddr, k -> new LongAdder());
+    }
+
+    private void schedule(ParentOrder parent) {
+        long ticks = Math.max(1, (parent.intervalNanos + tickNanos - 1) / tickNanos);
+        pendingTimeouts.add(new Timeout(parent, currentTick + ticks));
+    }
+
+    // Ticker thread
+
+    private void runTicker() {
+        long startNanos = System.nanoTime();
+        long tick = 0;
+        while (running) {
+            long sleepNanos = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                LockSupport.parkNanos(sleepNanos);
+                if (Thread.interrupted()) {
+                    return;
+                }
+                continue;
+            }
+            transferPending(tick);
+            expire((int) (tick & mask));
+            currentTick = ++tick;
+        }
+    }
+
+    private void transferPending(long tick) {
+        Timeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            long deadline = Math.max(timeout.deadlineTick, tick);
+            timeout.remainingRounds = (deadline - tick) / buckets.length;
+            int index = (int) (deadline & mask);
+            timeout.next = buckets[index];
+            buckets[index] = timeout;
+        }
+    }
+
+    private void expire(int index) {
+        Timeout previous = null;
+        Timeout timeout = buckets[index];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+                previous = timeout;
+            } else {
+                if (previous == null) {
+                    buckets[index] = next;
+                } else {
+                    previous.next = next;
+                }
+                timeout.next = null;
+                due.add(timeout.parent);
+            }
+            timeout = next;
+        }
+    }
+
+    // Sender thread
+
+    private void runSender() {
+        while (running) {
+            ParentOrder parent;
+            try {
+                parent = due.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                if (parent.cancelled) {
+                    finish(parent, "cancelled");
+                } else if (sendChild(parent)) {
+                    schedule(parent);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                logger.error("Parent {} slice failed: {}", parent.id, e.getMessage());
+                schedule(parent);
+            }
+        }
+    }
+
+    /**
+     * Size and send the parent's next child.
+     *
+     * @return True if the parent has more to do
+     */
+    private boolean sendChild(ParentOrder parent) throws Exception {
+        MarketConfig market = parent.market;
+        long remaining = parent.totalSize - parent.submitted.get();
+        boolean last = false;
+        long want;
+        switch (parent.algo) {
+            case TWAP:
+                int slice = ++parent.slicesSent;
+                last = slice >= parent.slices;
+                want = last ? remaining : parent.totalSize * slice / parent.slices - parent.submitted.get();
+                break;
+            case ICEBERG:
+                // Replenish only once the last clip has settled
+                want = parent.inFlight.get() > 0 ? 0 : parent.displaySize;
+                break;
+            case POV:
+                long traded = volume(market.getMarketAddr()).sum() - parent.volumeAtStart;
+                want = (long) (traded * parent.participation) - parent.submitted.get();
+                break;
+            default:
+                throw new IllegalStateException("Unknown algo " + parent.algo);
+        }
+
+        long size = childSize(market, want, remaining);
+        if (size > 0) {
+            long sequenceNumber = -1;
+            String txHash;
+            try {
+                sequenceNumber = sequencer.next();
+                txHash = DecibelTransactions.submitOrder(client, account, templates.get(market.getMarketAddr()),
+                    parent.limitPrice, size, parent.isBuy, parent.timeInForce, false, sequenceNumber, chainId);
+            } catch (Exception e) {
+                if (sequenceNumber >= 0) {
+                    // The number may or may not have been consumed; resync once the other children settle
+                    sequencer.fail();
+                }
+                if (last) {
+                    parent.slicesSent--;
+                }
+                throw e;
+            }
+            parent.submitted.addAndGet(size);
+            parent.inFlight.incrementAndGet();
+            logger.debug("Parent {} child {} @ {} | Tx: {}", parent.id, size, parent.limitPrice, txHash);
+            CompletableFuture<Void> commit = DecibelTransactions.awaitOrderCommit(client, txHash,
+                templates.get(market.getMarketAddr()), parent.limitPrice, size, parent.isBuy, parent.timeInForce,
+                sequenceNumber);
+            commits.add(commit);
+            commit.whenComplete((ignored, e) -> {
+                if (e == null) {
+                    sequencer.complete();
+                } else {
+                    sequencer.fail();
+                }
+                onChildCommit(parent, size, txHash, e);
+                commits.remove(commit);
+            });
+        }
+
+        synchronized (parent) {
+            remaining = parent.totalSize - parent.submitted.get();
+            if (last || remaining < Math.max(market.getMinSize(), 1)) {
+                finish(parent, remaining > 0 ? "done, " + remaining + " left unsubmitted" : "done");
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Round a wanted child size to a lot, capped at what is left, or 0 if it would be below min size.
+     */
+    private static long childSize(MarketConfig market, long want, long remaining) {
+        if (want <= 0) {
+            return 0;
+        }
+        long size = market.sizeToLotInteger(Math.min(want, remaining));
+        if (size > remaining) {
+            // Rounding up overshot the parent; take whole lots of what is left
+            size = remaining - remaining % market.getLotSize();
+        }
+        return size >= market.getMinSize() ? size : 0;
+    }
+
+    private void onChildCommit(ParentOrder parent, long size, String txHash, Throwable failure) {
+        try {
+            if (failure != null) {
+                logger.warn("Parent {} child {} did not commit, returning {} to the parent: {}", parent.id, txHash,
+                    size, failure.getMessage());
+                synchronized (parent) {
+                    parent.submitted.addAndGet(-size);
+                    if (parent.done && !parent.cancelled) {
+                        // The parent had finished on this child; put it back to work the remainder
+                        parent.done = false;
+                        active.incrementAndGet();
+                        schedule(parent);
+                    }
+                }
+            }
+        } finally {
+            parent.inFlight.decrementAndGet();
+        }
+    }
+
+    private void finish(ParentOrder parent, String reason) {
+        synchronized (parent) {
+            if (parent.done) {
+                return;
+            }
+            parent.done = true;
+            active.decrementAndGet();
+            logger.info("Parent {} {}: submitted {} of {}", parent.id, reason, parent.submitted.get(), parent.totalSize);
+        }
+    }
+
+    private static final class Timeout {
+        final ParentOrder parent;
+        final long deadlineTick;
+        long remainingRounds;
+        Timeout next;
+
+        Timeout(ParentOrder parent, long deadlineTick) {
+            this.parent = parent;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    /**
+     * Handle to a parent order being worked.
+     */
+    public static final class ParentOrder {
+        private final int id;
+        private final Algo algo;
+        private final MarketConfig market;
+        private final boolean isBuy;
+        private final long totalSize;
+        private final long limitPrice;
+        private final int timeInForce;
+        private final long intervalNanos;
+        private final int slices;
+        private final long displaySize;
+        private final double participation;
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private long volumeAtStart;
+        private int slicesSent;
+        private volatile boolean cancelled;
+        private volatile boolean done;
+
+        private ParentOrder(int id, Algo algo, MarketConfig market, boolean isBuy, long totalSize, long limitPrice,
+                            int timeInForce, long intervalMillis, int slices, long displaySize,
+                            double participation) {
+            if (totalSize <= 0 || intervalMillis <= 0) {
+                throw new IllegalArgumentException("totalSize and interval must be positive");
+            }
+            this.id = id;
+            this.algo = algo;
+            this.market = market;
+            this.isBuy = isBuy;
+            this.totalSize = totalSize;
+            this.limitPrice = limitPrice;
+            this.timeInForce = timeInForce;
+            this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+            this.slices = slices;
+            this.displaySize = displaySize;
+            this.participation = participation;
+        }
+
+        /**
+         * Stop sending children. Children already submitted are unaffected.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public Algo getAlgo() {
+            return algo;
+        }
+
+        /**
+         * @return Size of children committed or awaiting commit. This is not filled size: an IOC child
+         *         that found nothing to trade still counts
+         */
+        public long getSubmitted() {
+            return submitted.get();
+        }
+
+        public long getTotalSize() {
+            return totalSize;
+        }
+
+        /**
+         * @return True once no more children will be sent and none are awaiting commit
+         */
+        public boolean isDone() {
+            return done && inFlight.get() == 0;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.decibel;
+
+import com.aptoslabs.japtos.core.AccountAddress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Single entry point for one subaccount's fills, so every consumer sees the same fills in the same order.
+ *
+ * <p>Each fill moves the {@link RiskEngine} position for the subaccount and market, is appended to the
+ * {@link FillStore} history, and is passed to the {@link Hedger}. The fill price also becomes the market's mark price, so the risk engine values positions
+ * at the last traded price. Whatever receives fills from the exchange should call {@link #onFill} once
+ * per fill instead of calling the consumers directly.</p>
+ *
+ * <p>A caller that can only read the net position, such as {@link BulkOrderExample} polling
+ * {@link StateReader}, passes each reading to {@link #onPosition}. The first reading of a market sets the
+ * risk engine's position; after that each change is applied as one fill at the caller's price. Fills
+ * between two readings are merged, and their fees are unknown.</p>
+ */
+public class FillFeed {
+    private static final Logger logger = LoggerFactory.getLogger(FillFeed.class);
+
+    private final AccountAddress subaccountAddr;
+    private final RiskEngine riskEngine;
+    private final FillStore fillStore;
+    private final Hedger hedger;
+    /** Last position read per market, indexed by {@link AddressTable} id; {@code Long.MIN_VALUE} if never read. */
+    private long[] positions = new long[0];
+
+    /**
+     * @param riskEngine Engine whose positions follow the fills, or null
+     * @param fillStore Store to record the fills in, or null
+     * @param hedger Hedger to feed, or null
+     */
+    public FillFeed(AccountAddress subaccountAddr, RiskEngine riskEngine, FillStore fillStore, Hedger hedger) {
+        this.subaccountAddr = subaccountAddr;
+        this.riskEngine = riskEngine;
+        this.fillStore = fillStore;
+        this.hedger = hedger;
+    }
+
+    /**
+     * Apply one fill of the subaccount. Zero-size fills are ignored.
+     *
+     * @param timestampMillis Fill time in epoch milliseconds
+     * @param fee Fee paid in quote units; negative for rebates
+     */
+    public void onFill(long timestampMillis, AccountAddress marketAddr, boolean isBuy, long price, long size,
+                       long fee) {
+        if (size == 0) {
+            return;
+        }
+        if (riskEngine != null) {
+            int marketId = riskEngine.marketId(marketAddr);
+            if (marketId >= 0) {
+                riskEngine.setMarkPrice(marketId, price);
+            }
+            riskEngine.onFill(subaccountAddr, marketAddr, price, size, isBuy);
+        }
+        if (fillStore != null) {
+            try {
+                fillStore.appendFill(timestampMillis, marketAddr, isBuy, price, size, fee);
+            } catch (IOException e) {
+                // History is not on the trading path; keep risk and hedging going
+                logger.error("Failed to record fill in {}: {}", AddressTable.hex(marketAddr), e.getMessage());
+            }
+        }
+        if (hedger != null) {
+            hedger.onFill(subaccountAddr, marketAddr, isBuy, price, size);
+        }
+    }
+
+    /**
+     * Apply a position reading of the subaccount, turning any change since the previous reading into a
+     * fill. Readings of {@code Long.MIN_VALUE} (position unavailable) are ignored.
+     *
+     * @param timestampMillis Reading time in epoch milliseconds, used as the fill time
+     * @param price Price to record the fill at, such as the current mid
+     */
+    public synchronized void onPosition(long timestampMillis, AccountAddress marketAddr, long position,
+                                        long price) {
+        if (position == Long.MIN_VALUE) {
+            return;
+        }
+        int id = AddressTable.id(marketAddr);
+        if (id >= positions.length) {
+            int oldLength = positions.length;
+            positions = Arrays.copyOf(positions, Math.max(id + 1, oldLength * 2));
+            Arrays.fill(positions, oldLength, positions.length, Long.MIN_VALUE);
+        }
+        long previous = positions[id];
+        positions[id] = position;
+        if (previous == Long.MIN_VALUE) {
+            if (riskEngine != null) {
+                int subaccountId = riskEngine.subaccountId(subaccountAddr);
+                int marketId = riskEngine.marketId(marketAddr);
+                if (subaccountId >= 0 && marketId >= 0) {
+                    riskEngine.setPosition(subaccountId, marketId, position);
+                }
+            }
+            return;
+        }
+        long change = position - previous;
+        onFill(timestampMillis, marketAddr, change > 0, price, Math.abs(change), 0);
+    }
+}
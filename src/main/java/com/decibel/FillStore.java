@@ -0,0 +1,458 @@
+package com.decibel;
+
+import com.aptoslabs.japtos.core.AccountAddress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.IntStream;
+
+/**
+ * Columnar, memory-mapped history of fills and orders, partitioned by UTC day and market.
+ *
+ * <p>Each partition directory ({@code fills/2025-06-01/m0/}) holds one file per column: timestamp,
+ * side, price, size and fee, each a flat array of little-endian primitives. The market id is the
+ * partition key, so it is not repeated per row. A row count file is updated after the columns, so
+ * a crash mid-append leaves the partition at its last complete row.</p>
+ *
+ * <p>Scans read the mapped columns directly without materializing rows. Volume and fee rollups run
+ * as parallel primitive streams. PnL is order-dependent within a market, so each market is replayed
+ * in time order on its own, with markets processed in parallel. Appends come from a single writer at a
+ * time; scans can run concurrently with it and see every row committed before they started.</p>
+ *
+ * <p>Prices and sizes are stored in chain integer units, so PnL and notional are in price units times
+ * size units. Divide by {@code 10^(priceDecimals + sizeDecimals)} from {@link MarketConfig} for USD.</p>
+ */
+public class FillStore implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FillStore.class);
+
+    public static final String FILLS = "fills";
+    public static final String ORDERS = "orders";
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final String MARKETS_FILE = "markets.txt";
+
+    private final Path root;
+    private final List<AccountAddress> markets = new ArrayList<>();
+    // Store market id indexed by AddressTable id, -1 where the market has no id yet
+    private int[] marketIds = new int[0];
+    private final ConcurrentMap<String, Partition> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * Open (or create) a store in the given directory.
+     */
+    public static FillStore open(Path root) throws IOException {
+        return new FillStore(root);
+    }
+
+    private FillStore(Path root) throws IOException {
+        this.root = root;
+        Files.createDirectories(root);
+        Path marketsFile = root.resolve(MARKETS_FILE);
+        if (Files.exists(marketsFile)) {
+            for (String line : Files.readAllLines(marketsFile, StandardCharsets.UTF_8)) {
+                if (!line.trim().isEmpty()) {
+                    AccountAddress market = AccountAddress.fromHex(line.trim());
+                    indexMarket(AddressTable.id(market), markets.size());
+                    markets.add(market);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Stable small id for a market, assigned on first use
+     */
+    public synchronized int marketId(AccountAddress market) throws IOException {
+        int addrId = AddressTable.id(market);
+        if (addrId < marketIds.length && marketIds[addrId] >= 0) {
+            return marketIds[addrId];
+        }
+        int id = markets.size();
+        Files.write(root.resolve(MARKETS_FILE), (AddressTable.hex(addrId) + "\n").getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        markets.add(market);
+        indexMarket(addrId, id);
+        return id;
+    }
+
+    private void indexMarket(int addrId, int id) {
+        if (addrId >= marketIds.length) {
+            int oldLength = marketIds.length;
+            marketIds = Arrays.copyOf(marketIds, Math.max(addrId + 1, oldLength * 2));
+            Arrays.fill(marketIds, oldLength, marketIds.length, -1);
+        }
+        marketIds[addrId] = id;
+    }
+
+    public synchronized AccountAddress marketAddress(int marketId) {
+        return markets.get(marketId);
+    }
+
+    public synchronized int getMarketCount() {
+        return markets.size();
+    }
+
+    /**
+     * Append a fill.
+     *
+     * @param timestampMillis Fill time in epoch milliseconds
+     * @param fee Fee paid in quote units; negative for rebates
+     */
+    public void appendFill(long timestampMillis, AccountAddress market, boolean isBuy, long price, long size,
+                           long fee) throws IOException {
+        append(FILLS, timestampMillis, marketId(market), isBuy, price, size, fee);
+    }
+
+    /**
+     * Append a submitted order.
+     */
+    public void appendOrder(long timestampMillis, AccountAddress market, boolean isBuy, long price, long size)
+            throws IOException {
+        append(ORDERS, timestampMillis, marketId(market), isBuy, price, size, 0);
+    }
+
+    /**
+     * Append a row to a table. Rows within a partition must be appended in time order.
+     */
+    public synchronized void append(String table, long timestampMillis, int marketId, boolean isBuy, long price,
+                                    long size, long fee) throws IOException {
+        long day = Math.floorDiv(timestampMillis, MILLIS_PER_DAY);
+        partition(table, day, marketId, true).append(timestampMillis, isBuy, price, size, fee);
+    }
+
+    /**
+     * Total traded notional (price times size) per market over an inclusive UTC day range.
+     *
+     * @return Array indexed by market id
+     */
+    public double[] volume(String table, LocalDate from, LocalDate to) throws IOException {
+        List<Partition> all = partitions(table, from, to);
+        double[] out = new double[getMarketCount()];
+        for (Partition p : all) {
+            // Read the row count first; columns are always published before the count that needs them
+            int rows = p.rows;
+            Columns c = p.columns;
+            out[p.marketId] += IntStream.range(0, rows).parallel()
+                .mapToDouble(i -> (double) c.price.get(i) * c.size.get(i))
+                .sum();
+        }
+        return out;
+    }
+
+    /**
+     * Total fees per market over an inclusive UTC day range.
+     *
+     * @return Array indexed by market id
+     */
+    public long[] fees(String table, LocalDate from, LocalDate to) throws IOException {
+        List<Partition> all = partitions(table, from, to);
+        long[] out = new long[getMarketCount()];
+        for (Partition p : all) {
+            // Read the row count first; columns are always published before the count that needs them
+            int rows = p.rows;
+            Columns c = p.columns;
+            out[p.marketId] += IntStream.range(0, rows).parallel().mapToLong(c.fee::get).sum();
+        }
+        return out;
+    }
+
+    /**
+     * Replay fills over an inclusive UTC day range into per-market position and average-cost PnL.
+     * The range should start at a day the account was flat, or the opening position is missed.
+     *
+     * @return Summaries indexed by market id
+     */
+    public PnlSummary[] pnl(LocalDate from, LocalDate to) throws IOException {
+        List<Partition> all = partitions(FILLS, from, to);
+        int marketCount = getMarketCount();
+        PnlSummary[] out = new PnlSummary[marketCount];
+        IntStream.range(0, marketCount).parallel().forEach(m -> {
+            PnlSummary summary = new PnlSummary(m);
+            // partitions() returns days in ascending order
+            for (Partition p : all) {
+                if (p.marketId == m) {
+                    int rows = p.rows;
+                    summary.replay(p.columns, rows);
+                }
+            }
+            out[m] = summary;
+        });
+        return out;
+    }
+
+    /**
+     * Force every mapped column to disk and release the partitions.
+     */
+    @Override
+    public synchronized void close() {
+        for (Partition p : partitions.values()) {
+            p.force();
+        }
+        partitions.clear();
+    }
+
+    private List<Partition> partitions(String table, LocalDate from, LocalDate to) throws IOException {
+        List<Partition> out = new ArrayList<>();
+        for (long day = from.toEpochDay(); day <= to.toEpochDay(); day++) {
+            Path dayDir = root.resolve(table).resolve(LocalDate.ofEpochDay(day).toString());
+            if (!Files.isDirectory(dayDir)) {
+                continue;
+            }
+            try (DirectoryStream<Path> dirs = Files.newDirectoryStream(dayDir, "m*")) {
+                for (Path dir : dirs) {
+                    int marketId = Integer.parseInt(dir.getFileName().toString().substring(1));
+                    Partition p = partition(table, day, marketId, false);
+                    if (p != null) {
+                        out.add(p);
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    private Partition partition(String table, long day, int marketId, boolean create) throws IOException {
+        String key = table + "/" + day + "/" + marketId;
+        Partition p = partitions.get(key);
+        if (p != null) {
+            return p;
+        }
+        synchronized (this) {
+            p = partitions.get(key);
+            if (p == null) {
+                Path dir = root.resolve(table).resolve(LocalDate.ofEpochDay(day).toString()).resolve("m" + marketId);
+                if (!create && !Files.exists(dir.resolve("rows"))) {
+                    return null;
+                }
+                p = new Partition(dir, marketId);
+                partitions.put(key, p);
+            }
+            return p;
+        }
+    }
+
+    /**
+     * Position and average-cost PnL for one market, built by replaying its fills in order.
+     */
+    public static final class PnlSummary {
+        private final int marketId;
+        private long position;
+        private double averageEntryPrice;
+        private double realizedPnl;
+        private double volume;
+        private long fees;
+        private long fillCount;
+
+        PnlSummary(int marketId) {
+            this.marketId = marketId;
+        }
+
+        void replay(Columns c, int rows) {
+            for (int i = 0; i < rows; i++) {
+                long price = c.price.get(i);
+                long size = c.size.get(i);
+                long signed = c.side.get(i) != 0 ? size : -size;
+                fees += c.fee.get(i);
+                if (size == 0) {
+                    // Nothing traded; blending it in while flat would divide zero by zero
+                    continue;
+                }
+                volume += (double) price * size;
+                fillCount++;
+
+                if (position == 0 || (position > 0) == (signed > 0)) {
+                    // Opening or adding: blend into the average entry price
+                    long newPosition = position + signed;
+                    averageEntryPrice = (averageEntryPrice * Math.abs(position) + (double) price * size)
+                        / Math.abs(newPosition);
+                    position = newPosition;
+                } else {
+                    long closed = Math.min(Math.abs(position), size);
+                    realizedPnl += closed * (price - averageEntryPrice) * Long.signum(position);
+                    long newPosition = position + signed;
+                    if (newPosition == 0) {
+                        averageEntryPrice = 0;
+                    } else if ((newPosition > 0) != (position > 0)) {
+                        // Flipped through flat: the remainder opens at this fill's price
+                        averageEntryPrice = price;
+                    }
+                    position = newPosition;
+                }
+            }
+        }
+
+        public int getMarketId() {
+            return marketId;
+        }
+
+        /**
+         * @return Signed position in size units; positive is long
+         */
+        public long getPosition() {
+            return position;
+        }
+
+        public double getAverageEntryPrice() {
+            return averageEntryPrice;
+        }
+
+        public double getRealizedPnl() {
+            return realizedPnl;
+        }
+
+        /**
+         * @return Mark-to-market PnL of the open position at the given mark price
+         */
+        public double getUnrealizedPnl(long markPrice) {
+            return position * (markPrice - averageEntryPrice);
+        }
+
+        public double getVolume() {
+            return volume;
+        }
+
+        public long getFees() {
+            return fees;
+        }
+
+        public long getFillCount() {
+            return fillCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("PnlSummary{market=%d, fills=%d, position=%d, avgEntry=%.2f, realized=%.0f, "
+                + "volume=%.0f, fees=%d}", marketId, fillCount, position, averageEntryPrice, realizedPnl, volume, fees);
+        }
+    }
+
+    /**
+     * Mapped column views, replaced wholesale when a partition grows.
+     */
+    static final class Columns {
+        final int capacity;
+        final LongBuffer timestamp;
+        final ByteBuffer side;
+        final LongBuffer price;
+        final LongBuffer size;
+        final LongBuffer fee;
+        final MappedByteBuffer[] mapped;
+
+        Columns(int capacity, MappedByteBuffer ts, MappedByteBuffer side, MappedByteBuffer price,
+                MappedByteBuffer size, MappedByteBuffer fee) {
+            this.capacity = capacity;
+            this.timestamp = ts.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            this.side = side;
+            this.price = price.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            this.size = size.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            this.fee = fee.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            this.mapped = new MappedByteBuffer[] {ts, side, price, size, fee};
+        }
+    }
+
+    private static final class Partition {
+        final Path dir;
+        final int marketId;
+        final MappedByteBuffer rowsFile;
+        volatile Columns columns;
+        volatile int rows;
+
+        Partition(Path dir, int marketId) throws IOException {
+            this.dir = dir;
+            this.marketId = marketId;
+            Files.createDirectories(dir);
+            this.rowsFile = map(dir.resolve("rows"), 8);
+            rowsFile.order(ByteOrder.LITTLE_ENDIAN);
+            int committed = (int) rowsFile.getLong(0);
+            this.columns = mapColumns(Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, committed)) << 1));
+            this.rows = committed;
+        }
+
+        // Called with the store lock held
+        void append(long timestampMillis, boolean isBuy, long price, long size, long fee) throws IOException {
+            int row = rows;
+            Columns c = columns;
+            if (row == c.capacity) {
+                c = mapColumns(c.capacity * 2);
+                columns = c;
+                logger.debug("Grew partition {} to {} rows", dir, c.capacity);
+            }
+            c.timestamp.put(row, timestampMillis);
+            c.side.put(row, (byte) (isBuy ? 1 : 0));
+            c.price.put(row, price);
+            c.size.put(row, size);
+            c.fee.put(row, fee);
+            // Commit point: the row count is published after its columns
+            rowsFile.putLong(0, row + 1);
+            rows = row + 1;
+        }
+
+        void force() {
+            for (MappedByteBuffer buffer : columns.mapped) {
+                buffer.force();
+            }
+            rowsFile.force();
+        }
+
+        private Columns mapColumns(int capacity) throws IOException {
+            return new Columns(capacity,
+                map(dir.resolve("ts.i64"), 8L * capacity),
+                map(dir.resolve("side.i8"), capacity),
+                map(dir.resolve("price.i64"), 8L * capacity),
+                map(dir.resolve("size.i64"), 8L * capacity),
+                map(dir.resolve("fee.i64"), 8L * capacity));
+        }
+
+        private static MappedByteBuffer map(Path file, long bytes) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            }
+        }
+    }
+
+    /**
+     * Print per-market fill count, position, realized PnL, volume and fees.
+     * Usage: {@code FillStore <dir> [fromDay] [toDay]} with ISO dates; defaults to today (UTC).
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: FillStore <dir> [fromDay] [toDay]");
+            System.exit(2);
+        }
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate from = args.length > 1 ? LocalDate.parse(args[1]) : today;
+        LocalDate to = args.length > 2 ? LocalDate.parse(args[2]) : from;
+        try (FillStore store = FillStore.open(Paths.get(args[0]))) {
+            long start = System.nanoTime();
+            PnlSummary[] summaries = store.pnl(from, to);
+            long elapsed = System.nanoTime() - start;
+            for (PnlSummary summary : summaries) {
+                if (summary.getFillCount() > 0) {
+                    System.out.println(store.marketAddress(summary.getMarketId()) + " " + summary);
+                }
+            }
+            System.out.printf("Scanned %s..%s in %.1f ms%n", from, to, elapsed / 1e6);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.decibel;
+
+import com.aptoslabs.japtos.account.Ed25519Account;
+import com.aptoslabs.japtos.client.AptosClient;
+import com.aptoslabs.japtos.core.AccountAddress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates and funds a fleet of trading accounts for load tests.
+ *
+ * <p>Each account is generated, funded from the faucet, minted USDC and given a subaccount deposit.
+ * Accounts are provisioned concurrently with bounded parallelism. Faucet requests and both transactions
+ * are retried with exponential back-off, since the faucet rate-limits, funding takes a moment to land and
+ * a submission can be shed by the endpoint's limiter. A fresh account starts at sequence number 0, so the
+ * mint and deposit are submitted back to back at 0 and 1 without waiting for the mint to commit first. A
+ * deposit retry reuses sequence number 1, so it can never land ahead of or instead of the mint.</p>
+ *
+ * <p>Each provisioned account is appended to the keystore as soon as it is ready, one line per account:
+ * {@code address,private_key,subaccount}. The keystore holds private keys in plain text and is created
+ * readable by the owner only.</p>
+ */
+public class FleetProvisioner {
+    private static final Logger logger = LoggerFactory.getLogger(FleetProvisioner.class);
+    private static final String KEYSTORE_HEADER = "# address,private_key,subaccount";
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    /** Longest a retry waits for an earlier attempt, reported as already submitted, to show up on chain. */
+    private static final long DUPLICATE_WAIT_MILLIS = 30_000;
+
+    /**
+     * A provisioned account and its primary subaccount.
+     */
+    public static final class FleetAccount {
+        private final Ed25519Account account;
+        private final String privateKeyHex;
+        private final AccountAddress subaccountAddr;
+
+        FleetAccount(Ed25519Account account, String privateKeyHex, AccountAddress subaccountAddr) {
+            this.account = account;
+            this.privateKeyHex = privateKeyHex;
+            this.subaccountAddr = subaccountAddr;
+        }
+
+        public Ed25519Account getAccount() {
+            return account;
+        }
+
+        public String getPrivateKeyHex() {
+            return privateKeyHex;
+        }
+
+        public AccountAddress getSubaccountAddr() {
+            return subaccountAddr;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Step<T> {
+        T run() throws Exception;
+    }
+
+    private final AptosClient client;
+    private final AccountAddress packageAddress;
+    private final AccountAddress usdcAddress;
+    private final int chainId;
+    private final int parallelism;
+    private final int maxAttempts;
+    private final long mintAmount;
+    private final long depositAmount;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Create a provisioner.
+     *
+     * @param parallelism Number of accounts provisioned at once
+     * @param maxAttempts Attempts per faucet request and per first transaction before giving up on an account
+     * @param mintAmount USDC minted to each account (6 decimals)
+     * @param depositAmount USDC deposited to each account's primary subaccount (6 decimals)
+     */
+    public FleetProvisioner(AptosClient client, AccountAddress packageAddress, int chainId, int parallelism,
+                            int maxAttempts, long mintAmount, long depositAmount) {
+        this.client = client;
+        this.packageAddress = packageAddress;
+        this.usdcAddress = DecibelUtils.createObjectAddress(packageAddress, "USDC");
+        this.chainId = chainId;
+        this.parallelism = Math.max(1, parallelism);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.mintAmount = mintAmount;
+        this.depositAmount = depositAmount;
+    }
+
+    /**
+     * Provision {@code count} accounts, appending each to the keystore as it completes.
+     * Accounts that fail after all retries are logged and left out.
+     *
+     * @return The accounts that were fully provisioned
+     */
+    public List<FleetAccount> provision(int count, Path keystore) throws IOException, InterruptedException {
+        AtomicInteger threadId = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "fleet-provisioner-" + threadId.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger done = new AtomicInteger();
+        List<FleetAccount> provisioned = new ArrayList<>();
+        try (BufferedWriter writer = openKeystore(keystore)) {
+            List<Future<FleetAccount>> futures = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                futures.add(executor.submit(() -> {
+                    FleetAccount fleetAccount = provisionOne();
+                    synchronized (writer) {
+                        writer.write(fleetAccount.account.getAccountAddress() + "," + fleetAccount.privateKeyHex
+                            + "," + fleetAccount.subaccountAddr);
+                        writer.newLine();
+                        writer.flush();
+                    }
+                    int n = done.incrementAndGet();
+                    if (n % 10 == 0 || n == count) {
+                        logger.info("Provisioned {}/{} accounts", n, count);
+                    }
+                    return fleetAccount;
+                }));
+            }
+            for (Future<FleetAccount> future : futures) {
+                try {
+                    provisioned.add(future.get());
+                } catch (ExecutionException e) {
+                    logger.warn("Account provisioning failed: {}", e.getCause().getMessage());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return provisioned;
+    }
+
+    /**
+     * Read accounts back from a keystore written by {@link #provision}.
+     */
+    public static List<FleetAccount> loadKeystore(Path keystore) throws IOException {
+        List<FleetAccount> accounts = new ArrayList<>();
+        for (String line : Files.readAllLines(keystore, StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split(",");
+            if (parts.length != 3) {
+                throw new IOException("Malformed keystore line: " + parts[0]);
+            }
+            accounts.add(new FleetAccount(Ed25519Account.fromPrivateKeyHex(parts[1]), parts[1],
+                AccountAddress.fromHex(parts[2])));
+        }
+        return accounts;
+    }
+
+    private FleetAccount provisionOne() throws Exception {
+        String privateKeyHex = generatePrivateKeyHex();
+        Ed25519Account account = Ed25519Account.fromPrivateKeyHex(privateKeyHex);
+        AccountAddress address = account.getAccountAddress();
+        AccountAddress subaccountAddr = DecibelUtils.getPrimarySubaccountAddr(packageAddress, address);
+
+        withRetry("faucet " + address, () -> {
+            DecibelUtils.fundAccountFromFaucet(address);
+            return null;
+        });
+
+        // The mint is retried until the faucet funding lands; the deposit then goes out right behind it
+        String mintHash = submitWithRetry("mint " + address, account, 0, () ->
+            DecibelTransactions.submitMintUsdc(client, account, packageAddress, address, mintAmount, 0, chainId));
+        // Retried at the same sequence number; an account whose mint landed must not be left without its deposit
+        String depositHash = submitWithRetry("deposit " + address, account, 1, () ->
+            DecibelTransactions.submitDepositToSubaccount(client, account, packageAddress, subaccountAddr,
+                usdcAddress, depositAmount, 1, chainId));
+        if (mintHash != null) {
+            DecibelTransactions.waitForTransaction(client, mintHash);
+        }
+        if (depositHash != null) {
+            DecibelTransactions.waitForTransaction(client, depositHash);
+        }
+
+        return new FleetAccount(account, privateKeyHex, subaccountAddr);
+    }
+
+    /**
+     * Submit a transaction at a fixed sequence number, with retries. An attempt whose response was lost may
+     * still have gone through, so a retry rejected as already submitted is checked against the chain
+     * instead of being counted as a failure.
+     *
+     * @return Hash of the submission, or null if an earlier attempt was found on chain
+     */
+    private String submitWithRetry(String what, Ed25519Account account, long sequenceNumber, Step<String> submit)
+            throws Exception {
+        return withRetry(what, () -> {
+            try {
+                return submit.run();
+            } catch (Exception e) {
+                if (FullnodePool.isDuplicateSubmit(e) && awaitSequenceUsed(account, sequenceNumber)) {
+                    logger.debug("{} was already submitted; found it on chain", what);
+                    return null;
+                }
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * @return True once the account's sequence number has moved past {@code sequenceNumber}
+     */
+    private boolean awaitSequenceUsed(Ed25519Account account, long sequenceNumber) throws Exception {
+        long deadline = System.currentTimeMillis() + DUPLICATE_WAIT_MILLIS;
+        while (DecibelTransactions.getNextSequenceNumber(client, account) <= sequenceNumber) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(INITIAL_BACKOFF_MILLIS);
+        }
+        return true;
+    }
+
+    private <T> T withRetry(String what, Step<T> step) throws Exception {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return step.run();
+            } catch (Exception e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                long delay = backoff;
+                if (e instanceof RateLimitedException) {
+                    delay = Math.max(delay, ((RateLimitedException) e).getRetryAfterMillis());
+                }
+                logger.debug("{} failed (attempt {}/{}), retrying in {} ms: {}", what, attempt, maxAttempts,
+                    delay, e.getMessage());
+                Thread.sleep(delay);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private String generatePrivateKeyHex() {
+        byte[] seed = new byte[32];
+        random.nextBytes(seed);
+        StringBuilder hex = new StringBuilder("0x");
+        for (byte b : seed) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static BufferedWriter openKeystore(Path keystore) throws IOException {
+        boolean exists = Files.exists(keystore);
+        if (!exists) {
+            try {
+                Files.createFile(keystore, PosixFilePermissions.asFileAttribute(
+                    PosixFilePermissions.fromString("rw-------")));
+            } catch (UnsupportedOperationException e) {
+                Files.createFile(keystore);
+            }
+        }
+        BufferedWriter writer = Files.newBufferedWriter(keystore, StandardCharsets.UTF_8,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (!exists) {
+            writer.write(KEYSTORE_HEADER);
+            writer.newLine();
+        }
+        return writer;
+    }
+
+    /**
+     * Provision a fleet of funded accounts.
+     *
+     * <p>Usage: {@code FleetProvisioner <count> [keystore]} (keystore defaults to {@code fleet.keystore}).
+     * Parallelism and retries are set with {@code fleet.parallelism} (default 8, the fullnode limiter's
+     * starting limit) and
+     * {@code fleet.max.attempts} (default 6).</p>
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: FleetProvisioner <count> [keystore]");
+            System.exit(2);
+        }
+        try {
+            int count = Integer.parseInt(args[0]);
+            Path keystore = Paths.get(args.length > 1 ? args[1] : "fleet.keystore");
+            Properties config = InputUtils.loadConfig();
+            AptosClient client = DecibelTransactions.createClient(config.getProperty("aptos.fullnode.url"));
+            InputUtils.configureFullnodes(config);
+            InputUtils.startSigningStage(config);
+
+            FleetProvisioner provisioner = new FleetProvisioner(
+                client,
+                AccountAddress.fromHex(config.getProperty("deployment.package")),
+                Integer.parseInt(config.getProperty("chain.id")),
+                Integer.parseInt(config.getProperty("fleet.parallelism", "8").trim()),
+                Integer.parseInt(config.getProperty("fleet.max.attempts", "6").trim()),
+                InputUtils.USDC_MINT_AMOUNT,
+                InputUtils.USDC_DEPOSIT_AMOUNT);
+
+            long start = System.nanoTime();
+            List<FleetAccount> accounts = provisioner.provision(count, keystore);
+            System.out.printf("✅ Provisioned %d/%d accounts in %.1fs, written to %s%n", accounts.size(), count,
+                (System.nanoTime() - start) / 1e9, keystore.toAbsolutePath());
+            if (accounts.size() < count) {
+                System.exit(1);
+            }
+        } catch (Exception e) {
+            logger.error("Provisioning failed", e);
+            System.err.println("\n❌ Provisioning failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
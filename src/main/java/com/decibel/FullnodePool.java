@@ -0,0 +1,333 @@
+package com.decibel;
+
+import com.aptoslabs.japtos.client.AptosClient;
+import com.aptoslabs.japtos.core.AccountAddress;
+import com.aptoslabs.japtos.transaction.SignedTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * A set of fullnode endpoints with rolling health scores.
+ *
+ * <p>Every call through the pool updates the endpoint's exponentially weighted latency and error rate.
+ * Reads go to the best-scoring endpoint and fail over to the next one on error. Submissions can be
+ * hedged: the same signed transaction is sent to the top few endpoints at once and the first
+ * acceptance wins, which is safe because every copy has the same hash. Each endpoint's calls go through
+ * its {@link AdaptiveLimiter}, so a rate-limited node sheds load without holding up the others. Commit
+ * waits are the exception: they take no limiter slot and leave the scores alone.</p>
+ */
+public class FullnodePool {
+    private static final Logger logger = LoggerFactory.getLogger(FullnodePool.class);
+
+    /** Weight of the newest sample in the rolling averages. */
+    private static final double ALPHA = 0.2;
+    /** Latency assumed for an endpoint before its first sample. */
+    private static final double INITIAL_LATENCY_NANOS = 50_000_000.0;
+    /** How strongly the error rate inflates an endpoint's score. */
+    private static final double ERROR_PENALTY = 20.0;
+    /** Time constant over which an endpoint's error penalty fades after its last failure. */
+    private static final double ERROR_DECAY_SECONDS = 30.0;
+    /** Longest a hedged submit waits for any endpoint to answer. */
+    private static final long SUBMIT_TIMEOUT_MILLIS = 30_000;
+
+    /**
+     * A call against a single fullnode client.
+     */
+    @FunctionalInterface
+    public interface ClientCall<T> {
+        T call(AptosClient client) throws Exception;
+    }
+
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final ExecutorService hedgeExecutor;
+
+    /**
+     * Create a pool over the given fullnode URLs.
+     */
+    public FullnodePool(List<String> urls) {
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("At least one fullnode URL is required");
+        }
+        for (String url : urls) {
+            endpoints.add(new Endpoint(url, new AptosClient(url)));
+        }
+        AtomicInteger threadId = new AtomicInteger();
+        this.hedgeExecutor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "fullnode-hedge-" + threadId.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Parse a comma-separated list of fullnode URLs.
+     */
+    public static FullnodePool fromUrls(String commaSeparatedUrls) {
+        List<String> urls = new ArrayList<>();
+        for (String url : commaSeparatedUrls.split(",")) {
+            if (!url.trim().isEmpty()) {
+                urls.add(url.trim());
+            }
+        }
+        return new FullnodePool(urls);
+    }
+
+    /**
+     * @return Client for the currently best-scoring endpoint
+     */
+    public AptosClient best() {
+        return ranked().get(0).client;
+    }
+
+    /**
+     * Run a read against the best endpoint, failing over to the others in score order.
+     */
+    public <T> T read(ClientCall<T> call) throws Exception {
+        return read(AdaptiveLimiter.Priority.READ, call);
+    }
+
+    /**
+     * Run a call against the best endpoint at the given limiter priority, failing over to the others in score order.
+     */
+    public <T> T read(AdaptiveLimiter.Priority priority, ClientCall<T> call) throws Exception {
+        Exception last = null;
+        for (Endpoint endpoint : ranked()) {
+            try {
+                return timed(endpoint, priority, call);
+            } catch (Exception e) {
+                last = e;
+                logger.debug("Read failed on {}: {}", endpoint.url, e.getMessage());
+            }
+        }
+        throw last;
+    }
+
+    public long getNextSequenceNumber(AccountAddress address, AdaptiveLimiter.Priority priority) throws Exception {
+        return read(priority, c -> c.getNextSequenceNumber(address));
+    }
+
+    /**
+     * Wait for a transaction to commit on the best endpoint, giving up after {@code timeoutMillis} in total.
+     *
+     * <p>Commit waits last seconds, so they bypass the endpoint limiters and health scores: a long wait is
+     * block time, not endpoint latency, and a transaction that never commits is not the endpoint's fault.
+     * There is no failover either, since every endpoint sees the same chain.</p>
+     *
+     * @throws TimeoutException If the transaction has not committed in time
+     */
+    public void waitForTransaction(String txHash, long timeoutMillis) throws Exception {
+        AptosClient client = best();
+        Future<?> wait = hedgeExecutor.submit(() -> {
+            client.waitForTransaction(txHash);
+            return null;
+        });
+        try {
+            wait.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } catch (TimeoutException e) {
+            wait.cancel(true);
+            throw new TimeoutException("Transaction " + txHash + " not committed within " + timeoutMillis + "ms");
+        }
+    }
+
+    /**
+     * Submit a signed transaction to the top {@code fanout} endpoints concurrently.
+     *
+     * @return Hash from the first endpoint to accept the transaction
+     * @throws Exception The last failure if every endpoint rejected it
+     */
+    public String submitHedged(SignedTransaction signedTx, int fanout, AdaptiveLimiter.Priority priority)
+            throws Exception {
+        List<Endpoint> ranked = ranked();
+        int n = Math.max(1, Math.min(fanout, ranked.size()));
+        if (n == 1) {
+            return submitWithFailover(signedTx, ranked, priority);
+        }
+
+        CompletableFuture<String> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (int i = 0; i < n; i++) {
+            Endpoint endpoint = ranked.get(i);
+            hedgeExecutor.execute(() -> {
+                try {
+                    // Once another endpoint has accepted, this copy losing the race says nothing about its health
+                    first.complete(timed(endpoint, priority, c -> submit(c, signedTx),
+                        e -> first.isDone() || isDuplicateSubmit(e)));
+                } catch (Exception e) {
+                    logger.debug("Hedged submit failed on {}: {}", endpoint.url, e.getMessage());
+                    if (failures.incrementAndGet() == n) {
+                        first.completeExceptionally(e);
+                    }
+                }
+            });
+        }
+        try {
+            return first.get(SUBMIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } catch (TimeoutException e) {
+            throw new TimeoutException("No fullnode answered the submit within " + SUBMIT_TIMEOUT_MILLIS + "ms");
+        }
+    }
+
+    /**
+     * @return Snapshot of each endpoint's URL, rolling latency and error rate, best first
+     */
+    public List<String> describe() {
+        List<String> out = new ArrayList<>();
+        for (Endpoint endpoint : ranked()) {
+            out.add(String.format("%s latency=%.1fms errors=%.0f%%", endpoint.url,
+                endpoint.latencyNanos / 1_000_000.0, endpoint.errorRate * 100));
+        }
+        return out;
+    }
+
+    private String submitWithFailover(SignedTransaction signedTx, List<Endpoint> ranked,
+                                      AdaptiveLimiter.Priority priority) throws Exception {
+        Exception last = null;
+        for (Endpoint endpoint : ranked) {
+            try {
+                return timed(endpoint, priority, c -> submit(c, signedTx), FullnodePool::isDuplicateSubmit);
+            } catch (Exception e) {
+                last = e;
+            }
+        }
+        throw last;
+    }
+
+    private <T> T timed(Endpoint endpoint, AdaptiveLimiter.Priority priority, ClientCall<T> call) throws Exception {
+        return timed(endpoint, priority, call, e -> false);
+    }
+
+    /**
+     * Run a call under the endpoint's limiter and score it, leaving the score untouched for failures
+     * matching {@code neutral}.
+     */
+    private <T> T timed(Endpoint endpoint, AdaptiveLimiter.Priority priority, ClientCall<T> call,
+                        Predicate<Exception> neutral) throws Exception {
+        // Time only the request itself, not the wait for a limiter slot
+        return endpoint.limiter.execute(priority, () -> {
+            long start = System.nanoTime();
+            try {
+                T result = call.call(endpoint.client);
+                endpoint.recordSuccess(System.nanoTime() - start);
+                return result;
+            } catch (Exception e) {
+                if (!neutral.test(e)) {
+                    endpoint.recordFailure(System.nanoTime() - start);
+                }
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Submit to one endpoint. A copy of this exact transaction already in the node's mempool, from a hedge or
+     * an earlier attempt whose response was lost, means it is live, so that counts as accepted.
+     */
+    private static String submit(AptosClient client, SignedTransaction signedTx) throws Exception {
+        try {
+            return client.submitTransaction(signedTx).getHash();
+        } catch (Exception e) {
+            String message = e.getMessage();
+            if (message != null && message.toLowerCase().contains("already in mempool")) {
+                String txHash = DecibelUtils.transactionHash(signedTx);
+                if (txHash != null) {
+                    return txHash;
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * A submit rejected because the transaction, or another one at its sequence number, already reached the
+     * mempool or the chain. Expected when the same transaction is hedged or retried.
+     */
+    static boolean isDuplicateSubmit(Exception e) {
+        String message = e.getMessage();
+        if (message == null) {
+            return false;
+        }
+        String lower = message.toLowerCase();
+        return lower.contains("already in mempool")
+            || lower.contains("sequence_number_too_old")
+            || lower.contains("invalid_seq_number");
+    }
+
+    private List<Endpoint> ranked() {
+        // Snapshot scores first; they change concurrently and a sort needs a stable ordering
+        Endpoint[] snapshot = endpoints.toArray(new Endpoint[0]);
+        double[] scores = new double[snapshot.length];
+        long now = System.nanoTime();
+        for (int i = 0; i < snapshot.length; i++) {
+            scores[i] = snapshot[i].score(now);
+        }
+        // Insertion sort; pools hold a handful of endpoints
+        for (int i = 1; i < snapshot.length; i++) {
+            Endpoint endpoint = snapshot[i];
+            double score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] > score) {
+                snapshot[j + 1] = snapshot[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            snapshot[j + 1] = endpoint;
+            scores[j + 1] = score;
+        }
+        return Arrays.asList(snapshot);
+    }
+
+    private static final class Endpoint {
+        final String url;
+        final AptosClient client;
+        final AdaptiveLimiter limiter;
+        volatile double latencyNanos = INITIAL_LATENCY_NANOS;
+        volatile double errorRate;
+        volatile long lastFailureNanos;
+
+        Endpoint(String url, AptosClient client) {
+            this.url = url;
+            this.client = client;
+            this.limiter = AdaptiveLimiter.forEndpoint(url);
+            this.lastFailureNanos = System.nanoTime();
+        }
+
+        synchronized void recordSuccess(long nanos) {
+            latencyNanos += ALPHA * (nanos - latencyNanos);
+            errorRate -= ALPHA * errorRate;
+        }
+
+        synchronized void recordFailure(long nanos) {
+            // A failure costs at least as much as the time we waited for it
+            latencyNanos += ALPHA * (Math.max(nanos, latencyNanos) - latencyNanos);
+            errorRate += ALPHA * (1 - errorRate);
+            lastFailureNanos = System.nanoTime();
+        }
+
+        /**
+         * Lower is better. The error penalty fades after the last failure so a recovered
+         * endpoint gets traffic again even if nothing else fails.
+         */
+        double score(long now) {
+            double idleSeconds = (now - lastFailureNanos) / 1e9;
+            double penalty = errorRate * Math.exp(-idleSeconds / ERROR_DECAY_SECONDS);
+            return latencyNanos * (1 + ERROR_PENALTY * penalty);
+        }
+    }
+}
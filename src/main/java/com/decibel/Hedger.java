@@ -0,0 +1,389 @@
+package com.decibel;
+
+import com.aptoslabs.japtos.account.Ed25519Account;
+import com.aptoslabs.japtos.client.AptosClient;
+import com.aptoslabs.japtos.core.AccountAddress;
+import jdk.jfr.FlightRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Fill-driven hedger: keeps net delta per underlying across markets and fires IOC hedges when it drifts.
+ *
+ * <p>Feed every fill into {@link #onFill}. Each traded market maps to an underlying with a delta per unit
+ * of size, so fills in several markets on the same underlying net against each other. When the absolute
+ * net delta of an underlying reaches its threshold, the hedge thread sends an IOC order on that
+ * underlying's hedge market to bring it back to flat. The order is priced a configured number of ticks
+ * through the reference price.</p>
+ *
+ * <p>The hedge path avoids network round trips before submission. Payloads come from a pre-built
+ * {@link OrderPayloadTemplate}, and account sequence numbers are reserved up front and handed out locally by
+ * an {@link AccountSequencer}. After a failed hedge the numbers are resynchronized from the chain once no
+ * other hedge is in flight. The hedge account must therefore not be used by any other submitter. Commit waits run off the hedge thread through
+ * {@link DecibelTransactions#awaitOrderCommit}, which journals each hedge's outcome. The time from a fill
+ * arriving to its hedge being accepted by a fullnode is recorded in {@link #getFillToSubmitLatency()}. While
+ * the hedger runs, a Flight Recorder recording gets a periodic {@link OrderEvents.HedgeLatency} summary of
+ * it.</p>
+ *
+ * <p>A hedge in flight counts toward the net delta as pending size. Fills on the hedge market on the
+ * hedge's side are netted against that pending size as they arrive, so a hedge's own fills are never
+ * counted twice. Fills given with a subaccount are only netted if they are the hedger's own. Once the hedge commits, whatever has not come back as fills is released after
+ * {@link #FILL_GRACE_MILLIS}, since an IOC rests no longer than its commit. A hedge that fails is released
+ * at once.</p>
+ */
+public class Hedger implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(Hedger.class);
+
+    private static final int TIME_IN_FORCE_IOC = 2;
+    /** How long after a hedge commits its fills may still be arriving through {@link #onFill}. */
+    private static final long FILL_GRACE_MILLIS = 5000;
+
+    private final AptosClient client;
+    private final Ed25519Account account;
+    private final AccountAddress packageAddress;
+    private final AccountAddress subaccountAddr;
+    private final int chainId;
+
+    // Underlyings, indexed by id. Guarded by this.
+    private final List<String> underlyings = new ArrayList<>();
+    private final List<MarketConfig> hedgeMarkets = new ArrayList<>();
+    private final List<OrderPayloadTemplate> templates = new ArrayList<>();
+    private long[] threshold = new long[8];
+    private long[] slippageTicks = new long[8];
+    private long[] referencePrice = new long[8];
+    private double[] delta = new double[8];
+    private double[] pending = new double[8];
+    private final List<ArrayDeque<InFlightHedge>> inFlight = new ArrayList<>();
+
+    // Underlying id (-1 if unmapped) and delta per unit of size, indexed by AddressTable id of the traded
+    // market. Guarded by this.
+    private int[] marketUnderlying = new int[0];
+    private double[] marketDeltaPerUnit = new double[0];
+
+    private final BlockingQueue<long[]> triggers = new ArrayBlockingQueue<>(1024);
+    private final LatencyHistogram fillToSubmit = new LatencyHistogram();
+    private final Set<CompletableFuture<Void>> commits = ConcurrentHashMap.newKeySet();
+    private final AccountSequencer sequencer;
+    private final Thread hedgeThread;
+    private final Runnable latencyReport = this::reportLatency;
+    private volatile boolean running;
+
+    /**
+     * Create a hedger trading from the given account and subaccount. Call {@link #start()} after registering
+     * underlyings.
+     */
+    public Hedger(AptosClient client, Ed25519Account account, AccountAddress packageAddress,
+                  AccountAddress subaccountAddr, int chainId) {
+        this.client = client;
+        this.account = account;
+        this.packageAddress = packageAddress;
+        this.subaccountAddr = subaccountAddr;
+        this.chainId = chainId;
+        this.sequencer = new AccountSequencer(client, account);
+        this.hedgeThread = new Thread(this::runHedger, "hedger");
+        this.hedgeThread.setDaemon(true);
+        this.hedgeThread.setPriority(Thread.MAX_PRIORITY);
+    }
+
+    /**
+     * Register an underlying and the market its hedges are sent to. The hedge market is also mapped as a
+     * traded market with one unit of delta per unit of size.
+     *
+     * @param threshold Absolute net delta, in hedge market size units, that triggers a hedge
+     * @param slippageTicks How many ticks through the reference price the IOC is priced
+     * @return Underlying id
+     */
+    public synchronized int addUnderlying(String underlying, MarketConfig hedgeMarket, long threshold,
+                                          long slippageTicks) {
+        int id = underlyings.size();
+        if (id == delta.length) {
+            int capacity = id * 2;
+            this.threshold = Arrays.copyOf(this.threshold, capacity);
+            this.slippageTicks = Arrays.copyOf(this.slippageTicks, capacity);
+            this.referencePrice = Arrays.copyOf(this.referencePrice, capacity);
+            this.delta = Arrays.copyOf(this.delta, capacity);
+            this.pending = Arrays.copyOf(this.pending, capacity);
+        }
+        underlyings.add(underlying);
+        hedgeMarkets.add(hedgeMarket);
+        inFlight.add(new ArrayDeque<>());
+        templates.add(new OrderPayloadTemplate(packageAddress, subaccountAddr, hedgeMarket.getMarketAddr()));
+        this.threshold[id] = threshold;
+        this.slippageTicks[id] = slippageTicks;
+        mapMarket(hedgeMarket.getMarketAddrId(), id, 1.0);
+        return id;
+    }
+
+    /**
+     * Map a traded market onto an underlying.
+     *
+     * @param deltaPerUnit Hedge market size units of delta per unit of this market's size
+     */
+    public synchronized void mapMarket(AccountAddress marketAddr, String underlying, double deltaPerUnit) {
+        mapMarket(AddressTable.id(marketAddr), underlyingId(underlying), deltaPerUnit);
+    }
+
+    private void mapMarket(int marketAddrId, int underlyingId, double deltaPerUnit) {
+        if (marketAddrId >= marketUnderlying.length) {
+            int oldLength = marketUnderlying.length;
+            int capacity = Math.max(marketAddrId + 1, oldLength * 2);
+            marketUnderlying = Arrays.copyOf(marketUnderlying, capacity);
+            Arrays.fill(marketUnderlying, oldLength, capacity, -1);
+            marketDeltaPerUnit = Arrays.copyOf(marketDeltaPerUnit, capacity);
+        }
+        marketUnderlying[marketAddrId] = underlyingId;
+        marketDeltaPerUnit[marketAddrId] = deltaPerUnit;
+    }
+
+    /**
+     * Set the price hedges on this underlying are priced from. Fills on the hedge market also update it.
+     */
+    public synchronized void setReferencePrice(String underlying, long price) {
+        referencePrice[underlyingId(underlying)] = price;
+    }
+
+    /**
+     * Reserve the first sequence number and start the hedge thread.
+     */
+    public void start() throws Exception {
+        sequencer.sync();
+        running = true;
+        hedgeThread.start();
+        FlightRecorder.addPeriodicEvent(OrderEvents.HedgeLatency.class, latencyReport);
+    }
+
+    /**
+     * Apply a fill. Fills in unmapped markets are ignored.
+     */
+    public void onFill(AccountAddress marketAddr, boolean isBuy, long price, long size) {
+        onFill(AddressTable.find(marketAddr), isBuy, price, size);
+    }
+
+    /**
+     * Apply a fill of the given subaccount. Only the hedger's own fills are netted against hedges in flight,
+     * so use this when other subaccounts also trade on a hedge market.
+     */
+    public void onFill(AccountAddress fillSubaccountAddr, AccountAddress marketAddr, boolean isBuy, long price,
+                       long size) {
+        onFill(AddressTable.find(marketAddr), isBuy, price, size, subaccountAddr.equals(fillSubaccountAddr));
+    }
+
+    /**
+     * Apply a fill in the market with the given {@link AddressTable} id.
+     */
+    public void onFill(int marketAddrId, boolean isBuy, long price, long size) {
+        onFill(marketAddrId, isBuy, price, size, true);
+    }
+
+    private void onFill(int marketAddrId, boolean isBuy, long price, long size, boolean ownFill) {
+        long receivedNanos = System.nanoTime();
+        int id;
+        boolean trigger;
+        synchronized (this) {
+            if (marketAddrId < 0 || marketAddrId >= marketUnderlying.length || marketUnderlying[marketAddrId] < 0) {
+                return;
+            }
+            id = marketUnderlying[marketAddrId];
+            double units = size * marketDeltaPerUnit[marketAddrId];
+            delta[id] += isBuy ? units : -units;
+            if (marketAddrId == hedgeMarkets.get(id).getMarketAddrId()) {
+                referencePrice[id] = price;
+                if (ownFill) {
+                    absorbHedgeFill(id, isBuy, size);
+                }
+            }
+            trigger = Math.abs(delta[id] + pending[id]) >= threshold[id];
+        }
+        if (trigger && !triggers.offer(new long[] {id, receivedNanos})) {
+            logger.warn("Hedge trigger queue full; dropping trigger for {}", underlyings.get(id));
+        }
+    }
+
+    /**
+     * @return Net delta of an underlying from fills, excluding the unfilled part of hedges in flight
+     */
+    public synchronized double getDelta(String underlying) {
+        return delta[underlyingId(underlying)];
+    }
+
+    /**
+     * @return Subaccount the hedges are sent from; its fills on a hedge market should be fed back in
+     */
+    public AccountAddress getSubaccountAddr() {
+        return subaccountAddr;
+    }
+
+    /**
+     * @return Time from a fill arriving in {@link #onFill} to its hedge being accepted by a fullnode
+     */
+    public LatencyHistogram getFillToSubmitLatency() {
+        return fillToSubmit;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        hedgeThread.interrupt();
+        FlightRecorder.removePeriodicEvent(latencyReport);
+        try {
+            CompletableFuture.allOf(commits.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // Failed commits are logged by their own callbacks; don't hold up shutdown for the rest
+        }
+        logger.info("Fill to hedge submit: {}", fillToSubmit);
+    }
+
+    private void reportLatency() {
+        OrderEvents.HedgeLatency event = new OrderEvents.HedgeLatency();
+        if (event.shouldCommit()) {
+            event.set(subaccountAddr, fillToSubmit);
+            event.commit();
+        }
+    }
+
+    private void runHedger() {
+        while (running) {
+            long[] trigger;
+            try {
+                trigger = triggers.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                hedge((int) trigger[0], trigger[1]);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                logger.error("Hedge failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void hedge(int id, long fillNanos) throws Exception {
+        MarketConfig market;
+        OrderPayloadTemplate template;
+        long size;
+        long price;
+        boolean isBuy;
+        InFlightHedge hedge;
+        synchronized (this) {
+            double net = delta[id] + pending[id];
+            if (Math.abs(net) < threshold[id]) {
+                // An earlier hedge already covered this trigger
+                return;
+            }
+            market = hedgeMarkets.get(id);
+            template = templates.get(id);
+            size = market.sizeToLotInteger((long) Math.abs(net));
+            if (size < market.getMinSize() || referencePrice[id] == 0) {
+                return;
+            }
+            isBuy = net < 0;
+            long through = slippageTicks[id] * market.getTickSize();
+            price = isBuy
+                ? market.priceToTickInteger(referencePrice[id] + through, true)
+                : market.priceToTickInteger(Math.max(market.getTickSize(), referencePrice[id] - through), false);
+            hedge = new InFlightHedge(isBuy, size);
+            inFlight.get(id).add(hedge);
+            pending[id] += isBuy ? size : -size;
+        }
+
+        long sequenceNumber;
+        String txHash;
+        try {
+            sequenceNumber = sequencer.next();
+        } catch (Exception e) {
+            release(id, hedge);
+            throw e;
+        }
+        try {
+            txHash = DecibelTransactions.submitOrder(client, account, template, price, size, isBuy,
+                TIME_IN_FORCE_IOC, false, sequenceNumber, chainId);
+        } catch (Exception e) {
+            release(id, hedge);
+            sequencer.fail();
+            throw e;
+        }
+        fillToSubmit.record(System.nanoTime() - fillNanos);
+        logger.info("Hedge {} {} {} @ {} | Tx: {}", underlyings.get(id), isBuy ? "BUY" : "SELL", size, price, txHash);
+
+        CompletableFuture<Void> commit = DecibelTransactions.awaitOrderCommit(client, txHash, template, price, size,
+            isBuy, TIME_IN_FORCE_IOC, sequenceNumber);
+        commits.add(commit);
+        commit.whenComplete((ignored, e) -> {
+            if (e != null) {
+                logger.warn("Hedge {} did not commit: {}", txHash, e.getMessage());
+                sequencer.fail();
+                release(id, hedge);
+            } else {
+                sequencer.complete();
+                // Fills from the commit may still be on their way; release what is left once they have had time
+                CompletableFuture.delayedExecutor(FILL_GRACE_MILLIS, TimeUnit.MILLISECONDS)
+                    .execute(() -> release(id, hedge));
+            }
+            commits.remove(commit);
+        });
+    }
+
+    private int underlyingId(String underlying) {
+        int id = underlyings.indexOf(underlying);
+        if (id < 0) {
+            throw new IllegalArgumentException("Unknown underlying: " + underlying);
+        }
+        return id;
+    }
+
+    /**
+     * Net a fill on an underlying's hedge market against the oldest hedges in flight on the same side.
+     */
+    private void absorbHedgeFill(int id, boolean isBuy, long size) {
+        long left = size;
+        for (InFlightHedge hedge : inFlight.get(id)) {
+            if (left == 0) {
+                break;
+            }
+            if (hedge.isBuy != isBuy || hedge.remaining == 0) {
+                continue;
+            }
+            long absorbed = Math.min(left, hedge.remaining);
+            hedge.remaining -= absorbed;
+            pending[id] -= isBuy ? absorbed : -absorbed;
+            left -= absorbed;
+        }
+    }
+
+    /**
+     * Stop counting whatever of a hedge has not come back as fills.
+     */
+    private synchronized void release(int id, InFlightHedge hedge) {
+        pending[id] -= hedge.isBuy ? hedge.remaining : -hedge.remaining;
+        hedge.remaining = 0;
+        inFlight.get(id).remove(hedge);
+    }
+
+    private static final class InFlightHedge {
+        final boolean isBuy;
+        /** Size not yet seen as fills. Guarded by the hedger. */
+        long remaining;
+
+        InFlightHedge(boolean isBuy, long size) {
+            this.isBuy = isBuy;
+            this.remaining = size;
+        }
+    }
+}
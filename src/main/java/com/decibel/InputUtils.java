@@ -8,6 +8,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Properties;
 
 /**
@@ -15,8 +17,8 @@ import java.util.Properties;
  */
 public class InputUtils {
     private static final Logger logger = LoggerFactory.getLogger(InputUtils.class);
-    private static final long USDC_MINT_AMOUNT = 100_000_000L; // 100 USDC (6 decimals)
-    private static final long USDC_DEPOSIT_AMOUNT = 50_000_000L; // 50 USDC to deposit
+    static final long USDC_MINT_AMOUNT = 100_000_000L; // 100 USDC (6 decimals)
+    static final long USDC_DEPOSIT_AMOUNT = 50_000_000L; // 50 USDC to deposit
     
     /**
      * Load configuration from config.properties.
@@ -33,6 +35,190 @@ public class InputUtils {
         return props;
     }
     
+    /**
+     * Build a fullnode pool from {@code aptos.fullnode.urls} (comma-separated), if set, and route
+     * {@link DecibelTransactions} reads and submissions through it. Submissions are hedged across the
+     * best {@code submit.hedge.fanout} endpoints (default 2).
+     *
+     * @return The pool, or null if only the single {@code aptos.fullnode.url} is configured
+     */
+    public static FullnodePool configureFullnodes(Properties config) {
+        String urls = config.getProperty("aptos.fullnode.urls");
+        if (urls == null || urls.trim().isEmpty()) {
+            return null;
+        }
+        FullnodePool pool = FullnodePool.fromUrls(urls);
+        int fanout = Integer.parseInt(config.getProperty("submit.hedge.fanout", "2").trim());
+        DecibelTransactions.setFullnodePool(pool, fanout);
+        logger.info("Fullnode pool: {} (hedge fanout {})", urls.trim(), fanout);
+        return pool;
+    }
+    
+    /**
+     * Open the order journal configured by {@code journal.dir}, if any, and attach it to
+     * {@link DecibelTransactions}. The journal is flushed and closed on JVM shutdown.
+     *
+     * @return The opened journal, or null if journaling is not configured
+     */
+    public static OrderJournal openJournal(Properties config) throws IOException {
+        String journalDir = config.getProperty("journal.dir");
+        if (journalDir == null || journalDir.trim().isEmpty()) {
+            return null;
+        }
+        OrderJournal journal = OrderJournal.open(Paths.get(journalDir.trim()));
+        DecibelTransactions.setJournal(journal);
+        Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "order-journal-shutdown"));
+        logger.info("Order journal: {}", journalDir.trim());
+        return journal;
+    }
+    
+    /**
+     * Open the fill store configured by {@code fills.dir}, if any, and attach it to
+     * {@link DecibelTransactions} so accepted orders are recorded. The store is closed on JVM shutdown.
+     *
+     * @return The opened store, or null if fill history is not configured
+     */
+    public static FillStore openFillStore(Properties config) throws IOException {
+        String fillsDir = config.getProperty("fills.dir");
+        if (fillsDir == null || fillsDir.trim().isEmpty()) {
+            return null;
+        }
+        FillStore store = FillStore.open(Paths.get(fillsDir.trim()));
+        DecibelTransactions.setFillStore(store);
+        Runtime.getRuntime().addShutdownHook(new Thread(store::close, "fill-store-shutdown"));
+        logger.info("Fill store: {}", fillsDir.trim());
+        return store;
+    }
+    
+    /**
+     * Open the market registry for {@code trading.api.url}. If {@code markets.snapshot} is set, markets are
+     * served from that snapshot file at startup and revalidated in the background, every
+     * {@code markets.refresh.seconds} if set.
+     */
+    public static MarketRegistry openMarketRegistry(Properties config) throws IOException {
+        String snapshot = config.getProperty("markets.snapshot");
+        Path snapshotPath = snapshot == null || snapshot.trim().isEmpty() ? null : Paths.get(snapshot.trim());
+        return MarketRegistry.open(
+            snapshotPath,
+            config.getProperty("trading.api.url", "https://api.netna.aptoslabs.com/decibel"),
+            config.getProperty("trading.api.key"),
+            Long.parseLong(config.getProperty("markets.refresh.seconds", "0").trim()));
+    }
+    
+    /**
+     * Create an execution scheduler with the wheel resolution {@code scheduler.tick.ms} (default 100) and
+     * {@code scheduler.wheel.size} buckets (default 512).
+     */
+    public static ExecutionScheduler createExecutionScheduler(Properties config, AptosClient client,
+                                                              Ed25519Account account, AccountAddress packageAddress,
+                                                              AccountAddress subaccountAddr, int chainId) {
+        return new ExecutionScheduler(client, account, packageAddress, subaccountAddr, chainId,
+            Long.parseLong(config.getProperty("scheduler.tick.ms", "100").trim()),
+            Integer.parseInt(config.getProperty("scheduler.wheel.size", "512").trim()));
+    }
+    
+    /**
+     * Create a state reader on {@code aptos.fullnode.url} with {@code state.concurrency} requests in flight
+     * (default 16), reusing a pinned ledger version for {@code state.max.age.ms} (default 1000).
+     */
+    public static StateReader createStateReader(Properties config) {
+        return new StateReader(config.getProperty("aptos.fullnode.url"),
+            Integer.parseInt(config.getProperty("state.concurrency", "16").trim()),
+            Long.parseLong(config.getProperty("state.max.age.ms", "1000").trim()));
+    }
+    
+    /**
+     * View functions for {@link StateReader#readSubaccounts} from {@code state.view.collateral},
+     * {@code state.view.position} and {@code state.view.bulk.sequence}. Unset values are skipped.
+     */
+    public static StateReader.ViewFunctions stateViewFunctions(Properties config) {
+        return new StateReader.ViewFunctions(
+            blankToNull(config.getProperty("state.view.collateral")),
+            blankToNull(config.getProperty("state.view.position")),
+            blankToNull(config.getProperty("state.view.bulk.sequence")));
+    }
+    
+    /**
+     * Create a quote pipeline for one market if {@code pipeline.wait.strategy} is set ({@code busy-spin},
+     * {@code yield} or {@code park}), with a ring of {@code pipeline.ring.size} events (default 1024).
+     * Quotes are centered on the mid price.
+     *
+     * @return The pipeline, not yet started, or null if quoting stays on the calling thread
+     */
+    public static QuotePipeline createQuotePipeline(Properties config, AptosClient client, Ed25519Account account,
+                                                    AccountAddress packageAddress, AccountAddress subaccountAddr,
+                                                    MarketConfig market, RiskEngine riskEngine, int chainId,
+                                                    double[] offsets, long levelSize, long bulkSequenceNumber) {
+        String strategy = config.getProperty("pipeline.wait.strategy");
+        if (strategy == null || strategy.trim().isEmpty()) {
+            return null;
+        }
+        return new QuotePipeline(client, account, packageAddress, subaccountAddr, market, riskEngine, chainId,
+            mid -> mid, offsets, levelSize, bulkSequenceNumber,
+            Integer.parseInt(config.getProperty("pipeline.ring.size", "1024").trim()),
+            QuotePipeline.WaitStrategy.parse(strategy));
+    }
+    
+    /**
+     * Create a hedger for one market if {@code hedge.private.key} is set. Hedges go out from that account's
+     * primary subaccount, which nothing else may submit from, once the net position reaches
+     * {@code hedge.threshold} size units. They are priced {@code hedge.slippage.ticks} ticks through the
+     * reference price (default 2). The market is registered as its own underlying, under its name.
+     *
+     * @return The hedger, not yet started, or null if hedging is not configured
+     */
+    public static Hedger createHedger(Properties config, AptosClient client, AccountAddress packageAddress,
+                                      MarketConfig market, int chainId) {
+        String privateKeyHex = config.getProperty("hedge.private.key");
+        if (privateKeyHex == null || privateKeyHex.trim().isEmpty()) {
+            return null;
+        }
+        String threshold = config.getProperty("hedge.threshold");
+        if (threshold == null || threshold.trim().isEmpty()) {
+            throw new IllegalStateException("hedge.private.key requires hedge.threshold");
+        }
+        Ed25519Account account = Ed25519Account.fromPrivateKeyHex(privateKeyHex.trim());
+        Hedger hedger = new Hedger(client, account, packageAddress,
+            DecibelUtils.getPrimarySubaccountAddr(packageAddress, account.getAccountAddress()), chainId);
+        hedger.addUnderlying(market.getMarketName(), market, Long.parseLong(threshold.trim()),
+            Long.parseLong(config.getProperty("hedge.slippage.ticks", "2").trim()));
+        return hedger;
+    }
+    
+    /**
+     * Start the signing stage configured by {@code signing.threads}, if any, and attach it to
+     * {@link DecibelTransactions}. A value of {@code auto} uses one thread per available core.
+     *
+     * @return The started stage, or null if signing stays on the calling thread
+     */
+    public static SigningStage startSigningStage(Properties config) {
+        String threads = config.getProperty("signing.threads");
+        if (threads == null || threads.trim().isEmpty()) {
+            return null;
+        }
+        SigningStage stage = threads.trim().equalsIgnoreCase("auto")
+            ? new SigningStage()
+            : new SigningStage(Integer.parseInt(threads.trim()), 4096);
+        DecibelTransactions.setSigningStage(stage);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            logger.info("Sign latency: {}", stage.getSignLatency());
+            stage.close();
+        }, "signing-stage-shutdown"));
+        return stage;
+    }
+    
+    /**
+     * Load the account configured by {@code account.private.key}, without generating or funding one.
+     * For maintenance commands that must act on an existing account.
+     */
+    public static Ed25519Account loadAccount(Properties config) {
+        String privateKeyHex = config.getProperty("account.private.key");
+        if (privateKeyHex == null || privateKeyHex.trim().isEmpty()) {
+            throw new IllegalStateException("account.private.key must be set in config.properties");
+        }
+        return Ed25519Account.fromPrivateKeyHex(privateKeyHex.trim());
+    }
+    
     /**
      * Initialize an account from config or generate a new one.
      * If a private key is provided in config, it will be used.
@@ -79,4 +265,8 @@ public class InputUtils {
         
         return account;
     }
+    
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
 }
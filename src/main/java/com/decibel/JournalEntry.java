@@ -0,0 +1,169 @@
+package com.decibel;
+
+/**
+ * A submission read back from the {@link OrderJournal}, together with its outcome if one was recorded.
+ */
+public class JournalEntry {
+    private final int type;
+    private final long timestampMillis;
+    private final String subaccountHex;
+    private final String marketHex;
+    private final long accountSequenceNumber;
+    private final long bulkSequenceNumber;
+    private final long price;
+    private final long size;
+    private final boolean isBuy;
+    private final boolean isReduceOnly;
+    private final int timeInForce;
+    private final String txHash;
+    private final long[] bidPrices;
+    private final long[] bidSizes;
+    private final long[] askPrices;
+    private final long[] askSizes;
+    private final boolean truncated;
+    private final int outcome;
+    private final long outcomeTimestampMillis;
+
+    JournalEntry(int type, long timestampMillis, String subaccountHex, String marketHex,
+                 long accountSequenceNumber, long bulkSequenceNumber, long price, long size,
+                 boolean isBuy, boolean isReduceOnly, int timeInForce, String txHash,
+                 long[] bidPrices, long[] bidSizes, long[] askPrices, long[] askSizes, boolean truncated,
+                 int outcome, long outcomeTimestampMillis) {
+        this.type = type;
+        this.timestampMillis = timestampMillis;
+        this.subaccountHex = subaccountHex;
+        this.marketHex = marketHex;
+        this.accountSequenceNumber = accountSequenceNumber;
+        this.bulkSequenceNumber = bulkSequenceNumber;
+        this.price = price;
+        this.size = size;
+        this.isBuy = isBuy;
+        this.isReduceOnly = isReduceOnly;
+        this.timeInForce = timeInForce;
+        this.txHash = txHash;
+        this.bidPrices = bidPrices;
+        this.bidSizes = bidSizes;
+        this.askPrices = askPrices;
+        this.askSizes = askSizes;
+        this.truncated = truncated;
+        this.outcome = outcome;
+        this.outcomeTimestampMillis = outcomeTimestampMillis;
+    }
+
+    JournalEntry withOutcome(int outcome, long outcomeTimestampMillis) {
+        return new JournalEntry(type, timestampMillis, subaccountHex, marketHex, accountSequenceNumber,
+            bulkSequenceNumber, price, size, isBuy, isReduceOnly, timeInForce, txHash,
+            bidPrices, bidSizes, askPrices, askSizes, truncated, outcome, outcomeTimestampMillis);
+    }
+
+    // Getters
+
+    /**
+     * @return One of {@link OrderJournal#TYPE_ORDER}, {@link OrderJournal#TYPE_BULK} or {@link OrderJournal#TYPE_CANCEL}
+     */
+    public int getType() {
+        return type;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public String getSubaccountHex() {
+        return subaccountHex;
+    }
+
+    public String getMarketHex() {
+        return marketHex;
+    }
+
+    public long getAccountSequenceNumber() {
+        return accountSequenceNumber;
+    }
+
+    /**
+     * @return Bulk order sequence number, or -1 for single orders
+     */
+    public long getBulkSequenceNumber() {
+        return bulkSequenceNumber;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public boolean isBuy() {
+        return isBuy;
+    }
+
+    public boolean isReduceOnly() {
+        return isReduceOnly;
+    }
+
+    public int getTimeInForce() {
+        return timeInForce;
+    }
+
+    /**
+     * @return Transaction hash, or null if submission failed before a hash was returned
+     */
+    public String getTxHash() {
+        return txHash;
+    }
+
+    public long[] getBidPrices() {
+        return bidPrices.clone();
+    }
+
+    public long[] getBidSizes() {
+        return bidSizes.clone();
+    }
+
+    public long[] getAskPrices() {
+        return askPrices.clone();
+    }
+
+    public long[] getAskSizes() {
+        return askSizes.clone();
+    }
+
+    /**
+     * @return True if the ladder sent had more levels per side than the journal records
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * @return One of the {@code OUTCOME_*} constants on {@link OrderJournal}, or {@link OrderJournal#OUTCOME_PENDING}
+     */
+    public int getOutcome() {
+        return outcome;
+    }
+
+    public long getOutcomeTimestampMillis() {
+        return outcomeTimestampMillis;
+    }
+
+    @Override
+    public String toString() {
+        String kind = type == OrderJournal.TYPE_ORDER ? "ORDER" : type == OrderJournal.TYPE_BULK ? "BULK" : "CANCEL";
+        String status = outcome == OrderJournal.OUTCOME_COMMITTED ? "COMMITTED"
+            : outcome == OrderJournal.OUTCOME_FAILED ? "FAILED"
+            : outcome == OrderJournal.OUTCOME_SUBMIT_FAILED ? "SUBMIT_FAILED" : "PENDING";
+        if (type == OrderJournal.TYPE_ORDER) {
+            return String.format("JournalEntry{%s, ts=%d, subaccount=%s, market=%s, accountSeq=%d, %s %d @ %d, " +
+                "tif=%d, reduceOnly=%b, tx=%s, outcome=%s}",
+                kind, timestampMillis, subaccountHex, marketHex, accountSequenceNumber,
+                isBuy ? "BUY" : "SELL", size, price, timeInForce, isReduceOnly, txHash, status);
+        }
+        return String.format("JournalEntry{%s, ts=%d, subaccount=%s, market=%s, accountSeq=%d, bulkSeq=%d, " +
+            "bids=%d, asks=%d%s, tx=%s, outcome=%s}",
+            kind, timestampMillis, subaccountHex, marketHex, accountSequenceNumber, bulkSequenceNumber,
+            bidPrices.length, askPrices.length, truncated ? " (truncated)" : "", txHash, status);
+    }
+}
@@ -0,0 +1,90 @@
+package com.decibel;
+
+import java.util.function.LongPredicate;
+
+/**
+ * Open-addressing hash index from 64-bit keys to 64-bit values backed by two primitive arrays.
+ * Duplicate keys are allowed; lookups visit every value stored under a key and return the largest one
+ * the caller's predicate accepts. Values under a key are kept in no particular order, since growing the
+ * table reorders them, so callers that want the latest entry store increasing values such as positions.
+ * Not thread-safe; callers synchronize externally.
+ */
+final class LongMultiIndex {
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    LongMultiIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Add a key/value pair. The key 0 is reserved for empty slots and is remapped internally.
+     */
+    void put(long key, long value) {
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+        insert(remap(key), value);
+        size++;
+    }
+
+    /**
+     * Visit every value stored under a key.
+     *
+     * @return The largest value the predicate accepts, or -1 if none matched
+     */
+    long findMax(long key, LongPredicate accept) {
+        long k = remap(key);
+        int i = slot(k);
+        long max = -1L;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == k && values[i] > max && accept.test(values[i])) {
+                max = values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return max;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void insert(long k, long value) {
+        int i = slot(k);
+        while (keys[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = k;
+        values[i] = value;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private int slot(long k) {
+        // Fibonacci hashing spreads keys that only differ in their high bits
+        return (int) ((k * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private static long remap(long key) {
+        return key == EMPTY ? 0x5DEECE66DL : key;
+    }
+}
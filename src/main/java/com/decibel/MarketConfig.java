@@ -3,12 +3,16 @@ package com.decibel;
 import com.aptoslabs.japtos.core.AccountAddress;
 import com.fasterxml.jackson.databind.JsonNode;
 
+import java.math.BigInteger;
+
 /**
  * Market configuration containing tick size, lot size, and price/size math helpers.
- * Provides methods to round prices and sizes to valid tick and lot increments.
+ * Provides methods to round prices and sizes to valid tick and lot increments,
+ * one value at a time or in place over whole ladder arrays.
  */
 public class MarketConfig {
     private final AccountAddress marketAddr;
+    private final int marketAddrId;
     private final String marketName;
     private final int sizeDecimals;
     private final int maxLeverage;
@@ -18,6 +22,12 @@ public class MarketConfig {
     private final long maxOpenInterest;
     private final int priceDecimals;
 
+    // Precomputed reciprocals so batch rounding divides by tick and lot size with a multiply and shift
+    private final long tickMagic;
+    private final int tickShift;
+    private final long lotMagic;
+    private final int lotShift;
+
     /**
      * Create a new MarketConfig.
      *
@@ -35,6 +45,7 @@ public class MarketConfig {
                         int maxLeverage, long tickSize, long minSize, long lotSize,
                         long maxOpenInterest, int priceDecimals) {
         this.marketAddr = marketAddr;
+        this.marketAddrId = AddressTable.id(marketAddr);
         this.marketName = marketName;
         this.sizeDecimals = sizeDecimals;
         this.maxLeverage = maxLeverage;
@@ -43,6 +54,11 @@ public class MarketConfig {
         this.lotSize = lotSize;
         this.maxOpenInterest = maxOpenInterest;
         this.priceDecimals = priceDecimals;
+
+        this.tickMagic = magic(tickSize);
+        this.tickShift = shift(tickSize);
+        this.lotMagic = magic(lotSize);
+        this.lotShift = shift(lotSize);
     }
 
     /**
@@ -93,12 +109,133 @@ public class MarketConfig {
         return lotSize * ((Math.max(sizeInt, 1) - 1) / lotSize + 1);
     }
 
+    /**
+     * Round a ladder of prices to valid tick increments in place.
+     * Equivalent to calling {@link #priceToTickInteger} on each element.
+     *
+     * @param prices Prices as integers
+     * @param from First index to round (inclusive)
+     * @param to Last index to round (exclusive)
+     * @param ceil If true, round up; if false, round down
+     */
+    public void roundPricesToTick(long[] prices, int from, int to, boolean ceil) {
+        long tick = tickSize;
+        long magic = tickMagic;
+        int shift = tickShift;
+        if (ceil) {
+            for (int i = from; i < to; i++) {
+                prices[i] = tick * (divide(Math.max(prices[i], 1) - 1, tick, magic, shift) + 1);
+            }
+        } else {
+            for (int i = from; i < to; i++) {
+                prices[i] = tick * divide(prices[i], tick, magic, shift);
+            }
+        }
+    }
+
+    /**
+     * Round a ladder of sizes up to valid lot increments in place.
+     * Equivalent to calling {@link #sizeToLotInteger} on each element.
+     *
+     * @param sizes Sizes as integers (with size decimals already applied)
+     * @param from First index to round (inclusive)
+     * @param to Last index to round (exclusive)
+     * @return Index of the first rounded size below {@code minSize}, or -1 if all sizes are valid
+     */
+    public int roundSizesToLot(long[] sizes, int from, int to) {
+        long lot = lotSize;
+        long magic = lotMagic;
+        int shift = lotShift;
+        long min = minSize;
+        int firstInvalid = -1;
+        for (int i = from; i < to; i++) {
+            long rounded = lot * (divide(Math.max(sizes[i], 1) - 1, lot, magic, shift) + 1);
+            sizes[i] = rounded;
+            if (rounded < min && firstInvalid < 0) {
+                firstInvalid = i;
+            }
+        }
+        return firstInvalid;
+    }
+
+    /**
+     * Validate a rounded ladder: prices must be strictly monotonic away from the touch
+     * (descending for bids, ascending for asks) and every size must be at least {@code minSize}.
+     *
+     * @param prices Ladder prices, best level first
+     * @param sizes Ladder sizes
+     * @param count Number of levels
+     * @param isBid True for a bid ladder, false for an ask ladder
+     * @return Index of the first invalid level, or -1 if the ladder is valid
+     */
+    public int validateLadder(long[] prices, long[] sizes, int count, boolean isBid) {
+        for (int i = 0; i < count; i++) {
+            if (sizes[i] < minSize || prices[i] <= 0) {
+                return i;
+            }
+            if (i > 0 && (isBid ? prices[i] >= prices[i - 1] : prices[i] <= prices[i - 1])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Divide a value by a positive divisor using its precomputed reciprocal.
+     * Non-negative dividends use the multiply-high path; negative ones (and invalid divisors) fall back to division.
+     */
+    private static long divide(long n, long divisor, long magic, int shift) {
+        if (n < 0 || divisor <= 0) {
+            return n / divisor;
+        }
+        if (magic == 0) {
+            // Power-of-two divisor
+            return n >>> shift;
+        }
+        // Unsigned high 64 bits of n * magic, given n is non-negative
+        long hi = Math.multiplyHigh(n, magic) + ((magic >> 63) & n);
+        return hi >>> shift;
+    }
+
+    /**
+     * Compute the reciprocal multiplier for dividing 63-bit dividends by {@code divisor}:
+     * {@code ceil(2^(63 + s) / divisor)} where {@code s = ceil(log2(divisor))}, as an unsigned long.
+     * Returns 0 for powers of two, which divide with a plain shift.
+     */
+    private static long magic(long divisor) {
+        if (divisor <= 0 || Long.bitCount(divisor) == 1) {
+            return 0;
+        }
+        int s = 64 - Long.numberOfLeadingZeros(divisor - 1);
+        BigInteger d = BigInteger.valueOf(divisor);
+        BigInteger[] qr = BigInteger.ONE.shiftLeft(63 + s).divideAndRemainder(d);
+        BigInteger m = qr[1].signum() == 0 ? qr[0] : qr[0].add(BigInteger.ONE);
+        return m.longValue();
+    }
+
+    private static int shift(long divisor) {
+        if (divisor <= 0) {
+            return 0;
+        }
+        if (Long.bitCount(divisor) == 1) {
+            return Long.numberOfTrailingZeros(divisor);
+        }
+        return 64 - Long.numberOfLeadingZeros(divisor - 1) - 1;
+    }
+
     // Getters
 
     public AccountAddress getMarketAddr() {
         return marketAddr;
     }
 
+    /**
+     * @return {@link AddressTable} id of the market address
+     */
+    public int getMarketAddrId() {
+        return marketAddrId;
+    }
+
     public String getMarketName() {
         return marketName;
     }
@@ -0,0 +1,304 @@
+package com.decibel;
+
+import com.aptoslabs.japtos.core.AccountAddress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Market configurations served from a local binary snapshot and revalidated against the trading API.
+ *
+ * <p>At startup the snapshot file is memory-mapped and decoded, so markets are available without a
+ * network round trip and even while the trading API is down. A background thread then fetches
+ * {@code /api/v1/markets}, and again every refresh interval if one is set. The fetched markets are
+ * encoded the same way and compared by content version (a 64-bit hash of the encoded markets). The
+ * in-memory markets and the snapshot are replaced only when the version changes. With no snapshot,
+ * or an unreadable one, the first fetch happens synchronously.</p>
+ *
+ * <p>Snapshot layout (little endian): magic, format version, content version, saved-at millis and
+ * market count; then per market the 32-byte address, decimals, leverage, tick/min/lot size, max open
+ * interest and a length-prefixed UTF-8 name; then a CRC32 of everything before it. The file is
+ * replaced atomically, so readers never see a partial write.</p>
+ */
+public class MarketRegistry implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(MarketRegistry.class);
+
+    private static final int MAGIC = 0x4B4D4344; // "DCMK"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 28;
+
+    private final Path snapshotPath;
+    private final String tradingApiUrl;
+    private final String apiKey;
+    private final ScheduledExecutorService revalidator;
+
+    private volatile State state;
+
+    /**
+     * Open the registry, serving from the snapshot if it is readable and fetching otherwise.
+     *
+     * @param snapshotPath Snapshot file, or null to always fetch at startup and keep nothing on disk
+     * @param refreshSeconds Interval between background revalidations, or 0 to revalidate once at startup
+     * @throws IOException If there is no usable snapshot and the trading API request fails
+     */
+    public static MarketRegistry open(Path snapshotPath, String tradingApiUrl, String apiKey, long refreshSeconds)
+            throws IOException {
+        MarketRegistry registry = new MarketRegistry(snapshotPath, tradingApiUrl, apiKey);
+        State cached = snapshotPath != null ? readSnapshot(snapshotPath) : null;
+        if (cached != null) {
+            registry.state = cached;
+            logger.info("Loaded {} markets from snapshot {} (version {})", cached.markets.size(), snapshotPath,
+                Long.toHexString(cached.version));
+            registry.revalidator.execute(registry::revalidateQuietly);
+        } else {
+            registry.revalidate();
+        }
+        if (refreshSeconds > 0) {
+            registry.revalidator.scheduleWithFixedDelay(registry::revalidateQuietly, refreshSeconds, refreshSeconds,
+                TimeUnit.SECONDS);
+        }
+        return registry;
+    }
+
+    private MarketRegistry(Path snapshotPath, String tradingApiUrl, String apiKey) {
+        this.snapshotPath = snapshotPath;
+        this.tradingApiUrl = tradingApiUrl;
+        this.apiKey = apiKey;
+        this.revalidator = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "market-registry-revalidate");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * @return All known markets
+     */
+    public List<MarketConfig> getMarkets() {
+        return state.markets;
+    }
+
+    /**
+     * @return Configuration for the market, or null if it is not listed
+     */
+    public MarketConfig getMarket(AccountAddress marketAddr) {
+        return state.byAddress.get(marketAddr);
+    }
+
+    /**
+     * @return Content version of the markets currently served
+     */
+    public long getVersion() {
+        return state.version;
+    }
+
+    /**
+     * @return True until the served markets have been confirmed or replaced by a successful fetch
+     */
+    public boolean isStale() {
+        return !state.revalidated;
+    }
+
+    /**
+     * Fetch markets from the trading API now, replacing the served markets and the snapshot if they changed.
+     */
+    public synchronized void revalidate() throws IOException {
+        List<MarketConfig> fetched = DecibelUtils.getMarkets(tradingApiUrl, apiKey);
+        ByteBuffer encoded = encode(fetched);
+        long version = contentVersion(encoded);
+        State current = state;
+        if (current != null && current.version == version) {
+            if (!current.revalidated) {
+                state = new State(current.markets, version, true);
+            }
+            logger.debug("Markets unchanged (version {})", Long.toHexString(version));
+            return;
+        }
+        state = new State(fetched, version, true);
+        logger.info("Markets updated to version {} ({} markets)", Long.toHexString(version), fetched.size());
+        if (snapshotPath != null) {
+            writeSnapshot(snapshotPath, encoded, version, fetched.size());
+        }
+    }
+
+    @Override
+    public void close() {
+        revalidator.shutdownNow();
+    }
+
+    private void revalidateQuietly() {
+        try {
+            revalidate();
+        } catch (Exception e) {
+            logger.warn("Market revalidation failed, serving version {}: {}", Long.toHexString(state.version),
+                e.getMessage());
+        }
+    }
+
+    // Encoding
+
+    private static ByteBuffer encode(List<MarketConfig> markets) {
+        int size = 0;
+        List<byte[]> names = new ArrayList<>(markets.size());
+        for (MarketConfig market : markets) {
+            byte[] name = market.getMarketName().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            size += 32 + 4 + 4 + 8 + 8 + 8 + 8 + 4 + 2 + name.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < markets.size(); i++) {
+            MarketConfig market = markets.get(i);
+            buffer.put(market.getMarketAddr().toBytes());
+            buffer.putInt(market.getSizeDecimals());
+            buffer.putInt(market.getMaxLeverage());
+            buffer.putLong(market.getTickSize());
+            buffer.putLong(market.getMinSize());
+            buffer.putLong(market.getLotSize());
+            buffer.putLong(market.getMaxOpenInterest());
+            buffer.putInt(market.getPriceDecimals());
+            buffer.putShort((short) names.get(i).length);
+            buffer.put(names.get(i));
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static List<MarketConfig> decode(ByteBuffer buffer, int count) {
+        List<MarketConfig> markets = new ArrayList<>(count);
+        byte[] addr = new byte[32];
+        for (int i = 0; i < count; i++) {
+            buffer.get(addr);
+            int sizeDecimals = buffer.getInt();
+            int maxLeverage = buffer.getInt();
+            long tickSize = buffer.getLong();
+            long minSize = buffer.getLong();
+            long lotSize = buffer.getLong();
+            long maxOpenInterest = buffer.getLong();
+            int priceDecimals = buffer.getInt();
+            byte[] name = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(name);
+            markets.add(new MarketConfig(AccountAddress.fromHex(toHex(addr)), new String(name, StandardCharsets.UTF_8),
+                sizeDecimals, maxLeverage, tickSize, minSize, lotSize, maxOpenInterest, priceDecimals));
+        }
+        return markets;
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(2 + bytes.length * 2).append("0x");
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * FNV-1a over the encoded markets.
+     */
+    private static long contentVersion(ByteBuffer encoded) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = encoded.position(); i < encoded.limit(); i++) {
+            hash ^= encoded.get(i) & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // Snapshot file
+
+    private static State readSnapshot(Path path) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE + 8) {
+                throw new IOException("truncated");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("unknown format");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(mapped.duplicate().limit((int) fileSize - 8));
+            if (crc.getValue() != mapped.getLong((int) fileSize - 8)) {
+                throw new IOException("checksum mismatch");
+            }
+            long version = mapped.getLong(8);
+            int count = mapped.getInt(24);
+            ByteBuffer body = mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            body.position(HEADER_SIZE).limit((int) fileSize - 8);
+            if (contentVersion(body) != version) {
+                throw new IOException("version mismatch");
+            }
+            return new State(decode(body, count), version, false);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring market snapshot {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeSnapshot(Path path, ByteBuffer encoded, long version, int count) {
+        ByteBuffer file = ByteBuffer.allocate(HEADER_SIZE + encoded.remaining() + 8).order(ByteOrder.LITTLE_ENDIAN);
+        file.putInt(MAGIC);
+        file.putInt(FORMAT_VERSION);
+        file.putLong(version);
+        file.putLong(System.currentTimeMillis());
+        file.putInt(count);
+        file.put(encoded.duplicate());
+        CRC32 crc = new CRC32();
+        crc.update(file.array(), 0, file.position());
+        file.putLong(crc.getValue());
+        file.flip();
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (file.hasRemaining()) {
+                    channel.write(file);
+                }
+                channel.force(true);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to write market snapshot {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static final class State {
+        final List<MarketConfig> markets;
+        final Map<AccountAddress, MarketConfig> byAddress;
+        final long version;
+        final boolean revalidated;
+
+        State(List<MarketConfig> markets, long version, boolean revalidated) {
+            this.markets = Collections.unmodifiableList(new ArrayList<>(markets));
+            this.byAddress = new HashMap<>();
+            for (MarketConfig market : markets) {
+                byAddress.put(market.getMarketAddr(), market);
+            }
+            this.version = version;
+            this.revalidated = revalidated;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.decibel;
+
+import com.aptoslabs.japtos.core.AccountAddress;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events for the order lifecycle.
+ *
+ * <p>Each stage of an order is a timed event carrying the market, bulk sequence number, account sequence
+ * number and transaction hash, so a recording can line up GC pauses and lock contention with specific
+ * slow orders. Usage is always {@code begin()}, the work, then {@link OrderEvent#complete}. Fields are
+ * filled in only after {@code shouldCommit()}, so with recording off the cost is an event allocation that
+ * escape analysis removes. Enable them with {@code -XX:StartFlightRecording}; they appear under
+ * Decibel / Orders. {@link HedgeLatency} is a periodic summary rather than a per-order event and appears
+ * under Decibel / Hedging.</p>
+ */
+public final class OrderEvents {
+
+    private OrderEvents() {
+    }
+
+    /**
+     * Common order identity. Sequence numbers are -1 and strings null where a stage doesn't have them yet.
+     */
+    @Category({"Decibel", "Orders"})
+    @StackTrace(false)
+    public abstract static class OrderEvent extends Event {
+        @Label("Market")
+        String market;
+
+        @Label("Bulk Sequence Number")
+        long bulkSequenceNumber = -1;
+
+        @Label("Account Sequence Number")
+        long accountSequenceNumber = -1;
+
+        @Label("Transaction Hash")
+        String txHash;
+
+        /**
+         * End the event and, if it is being recorded, fill in the order identity and commit it.
+         */
+        public final void complete(AccountAddress marketAddr, long bulkSequenceNumber, long accountSequenceNumber,
+                                   String txHash) {
+            end();
+            if (shouldCommit()) {
+                this.market = marketAddr != null ? AddressTable.hex(marketAddr) : null;
+                this.bulkSequenceNumber = bulkSequenceNumber;
+                this.accountSequenceNumber = accountSequenceNumber;
+                this.txHash = txHash;
+                commit();
+            }
+        }
+    }
+
+    @Name("com.decibel.Quote")
+    @Label("Quote Computation")
+    @Description("Merging, netting and rounding quote levels into a bulk order ladder")
+    public static final class Quote extends OrderEvent {
+        @Label("Levels")
+        int levels;
+
+        public void setLevels(int levels) {
+            this.levels = levels;
+        }
+    }
+
+    @Name("com.decibel.PayloadBuild")
+    @Label("Payload Build")
+    @Description("Building the entry function payload for an order")
+    public static final class PayloadBuild extends OrderEvent {
+    }
+
+    @Name("com.decibel.Sign")
+    @Label("Sign")
+    @Description("Signing a transaction, including time queued on the signing stage")
+    public static final class Sign extends OrderEvent {
+    }
+
+    @Name("com.decibel.Submit")
+    @Label("Submit")
+    @Description("Submitting a signed transaction to the fullnodes")
+    public static final class Submit extends OrderEvent {
+    }
+
+    @Name("com.decibel.Commit")
+    @Label("Commit Wait")
+    @Description("Waiting for a submitted transaction to commit")
+    public static final class Commit extends OrderEvent {
+        @Label("Committed")
+        boolean committed;
+
+        public void setCommitted(boolean committed) {
+            this.committed = committed;
+        }
+    }
+
+    @Name("com.decibel.TradingApi")
+    @Label("Trading API Call")
+    @Description("A request to the Decibel trading API")
+    public static final class TradingApi extends OrderEvent {
+        @Label("Endpoint")
+        String endpoint;
+
+        public void setEndpoint(String endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+
+    /**
+     * Snapshot of a {@link Hedger}'s fill to hedge submit latency since it started, emitted every 10 seconds
+     * while recording. The period can be changed in the recording settings.
+     */
+    @Name("com.decibel.HedgeLatency")
+    @Label("Fill To Hedge Latency")
+    @Category({"Decibel", "Hedging"})
+    @Period("10 s")
+    @StackTrace(false)
+    public static final class HedgeLatency extends Event {
+        @Label("Subaccount")
+        String subaccount;
+
+        @Label("Hedges")
+        long count;
+
+        @Label("Mean")
+        @Timespan
+        long mean;
+
+        @Label("P50")
+        @Timespan
+        long p50;
+
+        @Label("P99")
+        @Timespan
+        long p99;
+
+        @Label("Max")
+        @Timespan
+        long max;
+
+        public void set(AccountAddress subaccountAddr, LatencyHistogram latency) {
+            this.subaccount = AddressTable.hex(subaccountAddr);
+            this.count = latency.getCount();
+            this.mean = (long) latency.getMeanNanos();
+            this.p50 = latency.getPercentileNanos(50);
+            this.p99 = latency.getPercentileNanos(99);
+            this.max = latency.getMaxNanos();
+        }
+    }
+}
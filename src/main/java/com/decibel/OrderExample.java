@@ -29,7 +29,12 @@ public class OrderExample {
         
         // Initialize Aptos client
         String fullnodeUrl = config.getProperty("aptos.fullnode.url");
-        this.client = new AptosClient(fullnodeUrl);
+        this.client = DecibelTransactions.createClient(fullnodeUrl);
+        
+        // Optional fullnode pool, order journal and signing stage
+        InputUtils.configureFullnodes(config);
+        InputUtils.openJournal(config);
+        InputUtils.startSigningStage(config);
         
         // Initialize account (load from config or generate new)
         this.account = InputUtils.initializeAccount(client, config);
@@ -0,0 +1,394 @@
+package com.decibel;
+
+import com.aptoslabs.japtos.account.Ed25519Account;
+import com.aptoslabs.japtos.client.AptosClient;
+import com.aptoslabs.japtos.core.AccountAddress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Aggregates per-level quote intents from many strategies into one bulk order per market per batching window.
+ *
+ * <p>Each strategy keeps its own set of (side, price) levels per market; submitting a level replaces that
+ * strategy's previous size at that price, and a size of 0 removes it. Once per window, every market whose
+ * intents changed is merged across strategies: prices are rounded to ticks, sizes summed per level,
+ * crossing bids and asks netted against each other, sizes rounded to lots, levels below the market's
+ * minimum size dropped, and the resulting price-sorted ladder sent as a single
+ * {@code place_bulk_orders_to_subaccount} transaction.</p>
+ *
+ * <p>Markets are flushed independently: each market's bulk order is signed and submitted on its own
+ * thread, and its commit is awaited in the background. A market whose last bulk order is still awaiting
+ * commit is skipped until it settles, so each market has at most one bulk order in flight. Account
+ * sequence numbers come from an {@link AccountSequencer}, so the account must not be used by any other
+ * submitter while the gateway runs.</p>
+ */
+public class OrderIntentGateway implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(OrderIntentGateway.class);
+
+    private final AptosClient client;
+    private final Ed25519Account account;
+    private final AccountAddress packageAddress;
+    private final AccountAddress subaccountAddr;
+    private final int chainId;
+    private final String tradingApiUrl;
+    private final long windowMillis;
+
+    private final Map<AccountAddress, MarketIntents> markets = new ConcurrentHashMap<>();
+    private final AccountSequencer sequencer;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService flushers;
+    private final ExecutorService submitters;
+    private final Set<CompletableFuture<Void>> commits = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Create a new gateway. Call {@link #start()} to begin flushing.
+     *
+     * @param tradingApiUrl Trading API used to look up each market's starting bulk order sequence number
+     * @param windowMillis Batching window; at most one bulk order per market is sent per window
+     */
+    public OrderIntentGateway(AptosClient client, Ed25519Account account, AccountAddress packageAddress,
+                              AccountAddress subaccountAddr, int chainId, String tradingApiUrl, long windowMillis) {
+        this.client = client;
+        this.account = account;
+        this.packageAddress = packageAddress;
+        this.subaccountAddr = subaccountAddr;
+        this.chainId = chainId;
+        this.tradingApiUrl = tradingApiUrl;
+        this.windowMillis = windowMillis;
+        this.sequencer = new AccountSequencer(client, account);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "order-intent-window");
+            t.setDaemon(true);
+            return t;
+        });
+        this.flushers = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "order-intent-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        this.submitters = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "order-intent-submit");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Allow intents for a market. Intents for unregistered markets are rejected.
+     */
+    public void registerMarket(MarketConfig marketConfig) {
+        markets.putIfAbsent(marketConfig.getMarketAddr(), new MarketIntents(marketConfig));
+    }
+
+    /**
+     * Start flushing merged intents once per batching window.
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::flushAll, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Set a strategy's size at one price level, replacing its previous size there. A size of 0 removes the level.
+     */
+    public void submitIntent(String strategyId, AccountAddress marketAddr, boolean isBuy, long price, long size) {
+        if (price <= 0 || size < 0) {
+            throw new IllegalArgumentException("Invalid intent: price=" + price + ", size=" + size);
+        }
+        MarketIntents intents = marketIntents(marketAddr);
+        synchronized (intents) {
+            Map<Long, Long> levels = intents.levels(strategyId, isBuy);
+            if (size == 0) {
+                levels.remove(price);
+            } else {
+                levels.put(price, size);
+            }
+            intents.dirty = true;
+        }
+    }
+
+    /**
+     * Remove all of a strategy's intents for a market.
+     */
+    public void clearIntents(String strategyId, AccountAddress marketAddr) {
+        MarketIntents intents = marketIntents(marketAddr);
+        synchronized (intents) {
+            if (intents.bids.remove(strategyId) != null | intents.asks.remove(strategyId) != null) {
+                intents.dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Start merging and submitting every market whose intents changed since the last flush. Each market is
+     * flushed on its own thread; markets with a bulk order still awaiting commit are left for a later window.
+     * Runs once per window; exposed for callers that want to flush early.
+     */
+    public void flushAll() {
+        for (MarketIntents intents : markets.values()) {
+            synchronized (intents) {
+                if (!intents.dirty || intents.busy) {
+                    continue;
+                }
+                intents.busy = true;
+            }
+            flushers.execute(() -> flushMarket(intents));
+        }
+    }
+
+    /**
+     * Stop flushing, let bulk orders in flight settle, and cancel the resting bulk order on every market
+     * that has one.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+            flushers.shutdown();
+            flushers.awaitTermination(10, TimeUnit.SECONDS);
+            // Cancels read the account sequence number from the chain, so nothing may still be signing or
+            // in the mempool
+            CompletableFuture.allOf(commits.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // Failed commits are logged by their own callbacks; cancel whatever may be resting
+        } finally {
+            submitters.shutdown();
+        }
+        for (MarketIntents intents : markets.values()) {
+            long bulkSequenceNumber;
+            synchronized (intents) {
+                if (!intents.resting) {
+                    continue;
+                }
+                bulkSequenceNumber = intents.bulkSequenceNumber;
+            }
+            try {
+                if (bulkSequenceNumber < 0) {
+                    bulkSequenceNumber = DecibelUtils.getBulkOrderSequenceNumber(
+                        tradingApiUrl, subaccountAddr, intents.config.getMarketAddr());
+                }
+                String txHash = DecibelTransactions.cancelBulkOrders(client, account, packageAddress,
+                    subaccountAddr, intents.config.getMarketAddr(), bulkSequenceNumber, chainId);
+                logger.info("Cancelled {} bulk order | Tx: {}", intents.config.getMarketName(), txHash);
+            } catch (Exception e) {
+                logger.error("Failed to cancel {} bulk order", intents.config.getMarketName(), e);
+            }
+        }
+    }
+
+    private MarketIntents marketIntents(AccountAddress marketAddr) {
+        MarketIntents intents = markets.get(marketAddr);
+        if (intents == null) {
+            throw new IllegalArgumentException("Market not registered with gateway: " + marketAddr);
+        }
+        return intents;
+    }
+
+    private void flushMarket(MarketIntents intents) {
+        boolean pending = false;
+        try {
+            pending = flush(intents);
+        } catch (Exception e) {
+            // The merged state was taken off the dirty flag; retry it on the next window
+            synchronized (intents) {
+                intents.dirty = true;
+            }
+            logger.error("Failed to flush intents for {}", intents.config.getMarketName(), e);
+        } finally {
+            if (!pending) {
+                synchronized (intents) {
+                    intents.busy = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Merge a market's intents and submit the ladder.
+     *
+     * @return True if a bulk order was handed to signing; its submit and commit callbacks clear {@code busy}
+     */
+    private boolean flush(MarketIntents intents) throws Exception {
+        MarketConfig config = intents.config;
+        TreeMap<Long, Long> bidBook = new TreeMap<>(Collections.reverseOrder());
+        TreeMap<Long, Long> askBook = new TreeMap<>();
+        OrderEvents.Quote quoteEvent = new OrderEvents.Quote();
+        quoteEvent.begin();
+
+        synchronized (intents) {
+            if (!intents.dirty) {
+                return false;
+            }
+            intents.dirty = false;
+            // Round bids down and asks up so merged levels never improve on what a strategy asked for
+            for (Map<Long, Long> levels : intents.bids.values()) {
+                for (Map.Entry<Long, Long> level : levels.entrySet()) {
+                    bidBook.merge(config.priceToTickInteger(level.getKey(), false), level.getValue(), Long::sum);
+                }
+            }
+            for (Map<Long, Long> levels : intents.asks.values()) {
+                for (Map.Entry<Long, Long> level : levels.entrySet()) {
+                    askBook.merge(config.priceToTickInteger(level.getKey(), true), level.getValue(), Long::sum);
+                }
+            }
+        }
+
+        net(bidBook, askBook);
+
+        List<Long> bidPrices = new ArrayList<>();
+        List<Long> bidSizes = new ArrayList<>();
+        List<Long> askPrices = new ArrayList<>();
+        List<Long> askSizes = new ArrayList<>();
+        toLadder(config, bidBook, bidPrices, bidSizes);
+        toLadder(config, askBook, askPrices, askSizes);
+        quoteEvent.setLevels(bidPrices.size() + askPrices.size());
+        quoteEvent.complete(config.getMarketAddr(), intents.bulkSequenceNumber, -1, null);
+
+        boolean empty = bidPrices.isEmpty() && askPrices.isEmpty();
+        if (empty && !intents.resting) {
+            return false;
+        }
+
+        if (intents.bulkSequenceNumber < 0) {
+            intents.bulkSequenceNumber = DecibelUtils.getBulkOrderSequenceNumber(
+                tradingApiUrl, subaccountAddr, config.getMarketAddr());
+        }
+        long bulkSequenceNumber = intents.bulkSequenceNumber;
+        long accountSequenceNumber = sequencer.next();
+        CompletableFuture<String> submitted;
+        try {
+            // Only the build runs here; submission is chained onto the signature on the submit pool
+            submitted = DecibelTransactions.submitBulkOrdersAsync(client, account, packageAddress, subaccountAddr,
+                config.getMarketAddr(), bulkSequenceNumber, bidPrices, bidSizes, askPrices, askSizes,
+                accountSequenceNumber, chainId, submitters);
+        } catch (Exception e) {
+            sequencer.fail();
+            throw e;
+        }
+
+        CompletableFuture<Void> commit = submitted.handle((txHash, e) -> {
+            if (e != null) {
+                onSubmitFailed(intents, e);
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            logger.info("{} seq {}: {} bids, {} asks | Tx: {}",
+                config.getMarketName(), bulkSequenceNumber, bidPrices.size(), askPrices.size(), txHash);
+            synchronized (intents) {
+                intents.bulkSequenceNumber++;
+            }
+            return DecibelTransactions.awaitBulkCommit(client, txHash, subaccountAddr, config.getMarketAddr(),
+                bulkSequenceNumber, accountSequenceNumber, bidPrices, bidSizes, askPrices, askSizes)
+                .whenComplete((ignored, failure) -> onCommit(intents, empty, txHash, failure));
+        }).thenCompose(settled -> settled);
+        commits.add(commit);
+        commit.whenComplete((ignored, e) -> commits.remove(commit));
+        return true;
+    }
+
+    private void onSubmitFailed(MarketIntents intents, Throwable failure) {
+        sequencer.fail();
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+            ? failure.getCause() : failure;
+        logger.error("Failed to flush intents for {}", intents.config.getMarketName(), cause);
+        synchronized (intents) {
+            // Nothing was sent; retry the merged state on the next window
+            intents.dirty = true;
+            intents.busy = false;
+        }
+    }
+
+    private void onCommit(MarketIntents intents, boolean empty, String txHash, Throwable failure) {
+        if (failure == null) {
+            sequencer.complete();
+        } else {
+            sequencer.fail();
+            logger.warn("{} bulk order {} did not commit: {}", intents.config.getMarketName(), txHash,
+                failure.getMessage());
+        }
+        synchronized (intents) {
+            if (failure == null) {
+                intents.resting = !empty;
+            } else {
+                // The transaction may still have landed; refetch the bulk sequence number, assume the old
+                // ladder may be resting, and send the merged state again
+                intents.bulkSequenceNumber = -1;
+                intents.resting = true;
+                intents.dirty = true;
+            }
+            intents.busy = false;
+        }
+    }
+
+    /**
+     * Net crossing levels against each other so the merged ladder never self-crosses.
+     */
+    static void net(TreeMap<Long, Long> bidBook, TreeMap<Long, Long> askBook) {
+        while (!bidBook.isEmpty() && !askBook.isEmpty() && bidBook.firstKey() >= askBook.firstKey()) {
+            Map.Entry<Long, Long> bid = bidBook.firstEntry();
+            Map.Entry<Long, Long> ask = askBook.firstEntry();
+            long matched = Math.min(bid.getValue(), ask.getValue());
+            reduce(bidBook, bid.getKey(), bid.getValue() - matched);
+            reduce(askBook, ask.getKey(), ask.getValue() - matched);
+        }
+    }
+
+    private static void reduce(TreeMap<Long, Long> book, long price, long remaining) {
+        if (remaining == 0) {
+            book.remove(price);
+        } else {
+            book.put(price, remaining);
+        }
+    }
+
+    private static void toLadder(MarketConfig config, TreeMap<Long, Long> book, List<Long> prices, List<Long> sizes) {
+        for (Map.Entry<Long, Long> level : book.entrySet()) {
+            long size = config.sizeToLotInteger(level.getValue());
+            if (size < config.getMinSize()) {
+                continue;
+            }
+            prices.add(level.getKey());
+            sizes.add(size);
+        }
+    }
+
+    /**
+     * Per-market intent state, guarded by the instance lock. While {@code busy} is set, the sequence and
+     * resting state belong to the one flush or commit callback working the market.
+     */
+    private static final class MarketIntents {
+        final MarketConfig config;
+        final Map<String, Map<Long, Long>> bids = new HashMap<>();
+        final Map<String, Map<Long, Long>> asks = new HashMap<>();
+        boolean dirty;
+        boolean busy;
+        long bulkSequenceNumber = -1;
+        boolean resting;
+
+        MarketIntents(MarketConfig config) {
+            this.config = config;
+        }
+
+        Map<Long, Long> levels(String strategyId, boolean isBuy) {
+            return (isBuy ? bids : asks).computeIfAbsent(strategyId, k -> new HashMap<>());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.decibel;
+
+import com.aptoslabs.japtos.account.Ed25519Account;
+import com.aptoslabs.japtos.client.AptosClient;
+import com.aptoslabs.japtos.core.AccountAddress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loopback socket front end for {@link OrderIntentGateway}, so strategies in other processes can submit intents.
+ *
+ * <p>Line protocol, one command per line, one reply line per command ({@code OK} or {@code ERR <message>}):</p>
+ * <pre>
+ * QUOTE &lt;strategy&gt; &lt;market_addr&gt; BUY|SELL &lt;price&gt; &lt;size&gt;
+ * CLEAR &lt;strategy&gt; &lt;market_addr&gt;
+ * PING
+ * </pre>
+ */
+public class OrderIntentServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(OrderIntentServer.class);
+
+    private final OrderIntentGateway gateway;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+
+    /**
+     * Bind to the given port on the loopback interface only.
+     */
+    public OrderIntentServer(OrderIntentGateway gateway, int port) throws IOException {
+        this.gateway = gateway;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.connections = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "order-intent-conn");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Accept connections until the server is closed. Blocks the calling thread.
+     */
+    public void serve() {
+        logger.info("Order intent gateway listening on {}", serverSocket.getLocalSocketAddress());
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.execute(() -> handle(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.warn("Accept failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    private void handle(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                out.println(execute(line.trim()));
+                out.flush();
+            }
+        } catch (IOException e) {
+            logger.debug("Connection closed: {}", e.getMessage());
+        }
+    }
+
+    String execute(String line) {
+        String[] parts = line.split("\\s+");
+        try {
+            switch (parts[0].toUpperCase()) {
+                case "QUOTE":
+                    if (parts.length != 6) {
+                        return "ERR usage: QUOTE <strategy> <market_addr> BUY|SELL <price> <size>";
+                    }
+                    gateway.submitIntent(parts[1], AccountAddress.fromHex(parts[2]), parseSide(parts[3]),
+                        Long.parseLong(parts[4]), Long.parseLong(parts[5]));
+                    return "OK";
+                case "CLEAR":
+                    if (parts.length != 3) {
+                        return "ERR usage: CLEAR <strategy> <market_addr>";
+                    }
+                    gateway.clearIntents(parts[1], AccountAddress.fromHex(parts[2]));
+                    return "OK";
+                case "PING":
+                    return "OK";
+                default:
+                    return "ERR unknown command: " + parts[0];
+            }
+        } catch (RuntimeException e) {
+            return "ERR " + e.getMessage();
+        }
+    }
+
+    private static boolean parseSide(String side) {
+        if (side.equalsIgnoreCase("BUY")) {
+            return true;
+        }
+        if (side.equalsIgnoreCase("SELL")) {
+            return false;
+        }
+        throw new IllegalArgumentException("side must be BUY or SELL: " + side);
+    }
+
+    /**
+     * Run the gateway for the APT-PERP market on {@code gateway.port} (default 7878).
+     */
+    public static void main(String[] args) {
+        try {
+            Properties config = InputUtils.loadConfig();
+            AptosClient client = DecibelTransactions.createClient(config.getProperty("aptos.fullnode.url"));
+            InputUtils.configureFullnodes(config);
+            InputUtils.openJournal(config);
+            InputUtils.startSigningStage(config);
+            Ed25519Account account = InputUtils.initializeAccount(client, config);
+
+            AccountAddress packageAddress = AccountAddress.fromHex(config.getProperty("deployment.package"));
+            AccountAddress marketAddress = AccountAddress.fromHex("0xe6de4f6ec47f1bc2ab73920e9f202953e60482e1c1a90e7eef3ee45c8aafee36");
+            AccountAddress subaccountAddr = DecibelUtils.getPrimarySubaccountAddr(packageAddress, account.getAccountAddress());
+            int chainId = Integer.parseInt(config.getProperty("chain.id"));
+            String tradingApiUrl = config.getProperty("trading.api.url", "https://api.netna.aptoslabs.com/decibel");
+            long windowMillis = Long.parseLong(config.getProperty("gateway.window.ms", "250"));
+            int port = Integer.parseInt(config.getProperty("gateway.port", "7878"));
+
+            MarketConfig marketConfig = InputUtils.openMarketRegistry(config).getMarket(marketAddress);
+            if (marketConfig == null) {
+                throw new RuntimeException("Market configuration not found for address: " + marketAddress);
+            }
+
+            OrderIntentGateway gateway = new OrderIntentGateway(client, account, packageAddress, subaccountAddr,
+                chainId, tradingApiUrl, windowMillis);
+            gateway.registerMarket(marketConfig);
+            gateway.start();
+
+            OrderIntentServer server = new OrderIntentServer(gateway, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    server.close();
+                } catch (IOException e) {
+                    logger.warn("Failed to close server: {}", e.getMessage());
+                }
+                gateway.close();
+            }, "order-intent-shutdown"));
+            server.serve();
+        } catch (Exception e) {
+            logger.error("Gateway failed", e);
+            System.err.println("\n❌ Gateway failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
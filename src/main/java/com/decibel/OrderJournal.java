@@ -0,0 +1,694 @@
+package com.decibel;
+
+import com.aptoslabs.japtos.core.AccountAddress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Append-only binary journal of submitted orders, bulk ladders, cancels and their outcomes.
+ *
+ * <p>Records are written to memory-mapped segment files ({@code journal-000000.seg}, ...) that roll
+ * over when full. Callers on the trading thread only copy primitives into a preallocated ring of
+ * slots; a single background thread encodes the slots into the mapped segments and maintains
+ * in-memory hash indexes by transaction hash and by (subaccount, market, bulk sequence number).
+ * The indexes are rebuilt by scanning the segments when a journal directory is reopened.</p>
+ */
+public class OrderJournal implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(OrderJournal.class);
+
+    public static final int TYPE_ORDER = 1;
+    public static final int TYPE_BULK = 2;
+    public static final int TYPE_CANCEL = 3;
+    static final int TYPE_OUTCOME = 4;
+
+    public static final int OUTCOME_PENDING = 0;
+    public static final int OUTCOME_COMMITTED = 1;
+    public static final int OUTCOME_FAILED = 2;
+    public static final int OUTCOME_SUBMIT_FAILED = 3;
+
+    public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    public static final int DEFAULT_RING_SIZE = 4096;
+    public static final int DEFAULT_MAX_LEVELS = 64;
+
+    // Record layout (little endian). The length field is written last so a torn record reads as end-of-data.
+    private static final int OFF_LENGTH = 0;
+    private static final int OFF_TYPE = 4;
+    private static final int OFF_FLAGS = 5;
+    private static final int OFF_TIF = 6;
+    private static final int OFF_OUTCOME = 7;
+    private static final int OFF_TIMESTAMP = 8;
+    private static final int OFF_ACCOUNT_SEQ = 16;
+    private static final int OFF_BULK_SEQ = 24;
+    private static final int OFF_PRICE = 32;
+    private static final int OFF_SIZE = 40;
+    private static final int OFF_SUBACCOUNT = 48;
+    private static final int OFF_MARKET = 80;
+    private static final int OFF_TX_HASH = 112;
+    private static final int OFF_BID_COUNT = 144;
+    private static final int OFF_ASK_COUNT = 148;
+    private static final int HEADER_SIZE = 152;
+
+    private static final int FLAG_BUY = 1;
+    private static final int FLAG_REDUCE_ONLY = 2;
+    private static final int FLAG_HAS_TX_HASH = 4;
+    private static final int FLAG_TRUNCATED = 8;
+
+    /** Claim sequence once the writer has exited; producers that claim it or above drop their record. */
+    private static final long CLOSED = Long.MIN_VALUE / 2;
+    /** Spins on a full ring before a producer starts parking between checks. */
+    private static final int MAX_SPINS = 1000;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path directory;
+    private final long segmentSize;
+    private final int maxLevels;
+
+    // Producer side: multi-producer claim on a preallocated ring, single consumer
+    private final Slot[] ring;
+    private final int ringMask;
+    private final AtomicLong claimSequence = new AtomicLong();
+    private final AtomicLong consumedSequence = new AtomicLong();
+
+    // Consumer side, owned by the writer thread
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment current;
+    private int writePosition;
+    private final byte[] scratch32 = new byte[32];
+
+    // Guarded by this
+    private final LongMultiIndex txIndex;
+    private final LongMultiIndex outcomeIndex;
+    private final LongMultiIndex bulkIndex;
+
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /**
+     * Open (or create) a journal in the given directory with default sizing.
+     */
+    public static OrderJournal open(Path directory) throws IOException {
+        return new OrderJournal(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_RING_SIZE, DEFAULT_MAX_LEVELS);
+    }
+
+    /**
+     * Open (or create) a journal.
+     *
+     * @param directory Directory holding the segment files
+     * @param segmentSize Size of each memory-mapped segment in bytes
+     * @param ringSize Number of preallocated hand-off slots (rounded up to a power of two)
+     * @param maxLevels Maximum ladder levels per side recorded for a bulk order; longer ladders are recorded
+     *                  truncated and flagged as such
+     */
+    public OrderJournal(Path directory, long segmentSize, int ringSize, int maxLevels) throws IOException {
+        if (segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size must fit in a single mapping: " + segmentSize);
+        }
+        this.directory = directory;
+        this.maxLevels = maxLevels;
+        this.segmentSize = Math.max(segmentSize, HEADER_SIZE + 32L * maxLevels + 8);
+
+        int capacity = Integer.highestOneBit(Math.max(2, ringSize) - 1) << 1;
+        this.ring = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new Slot(maxLevels);
+        }
+        this.ringMask = capacity - 1;
+
+        this.txIndex = new LongMultiIndex(1 << 16);
+        this.outcomeIndex = new LongMultiIndex(1 << 16);
+        this.bulkIndex = new LongMultiIndex(1 << 16);
+
+        Files.createDirectories(directory);
+        recover();
+
+        this.writer = new Thread(this::runWriter, "order-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Hot-path recording. These only copy primitives into a preallocated slot; records made after close are dropped.
+
+    /**
+     * Record a single order submission.
+     *
+     * @param txHash Transaction hash, or null if the submission itself failed
+     */
+    public void recordOrder(AccountAddress subaccountAddr, AccountAddress marketAddr, long accountSequenceNumber,
+                            long price, long size, boolean isBuy, int timeInForce, boolean isReduceOnly,
+                            String txHash) {
+        long seq = claim();
+        if (seq < 0) {
+            return;
+        }
+        Slot slot = ring[(int) seq & ringMask];
+        slot.type = TYPE_ORDER;
+        slot.timestampMillis = System.currentTimeMillis();
+        slot.accountSeq = accountSequenceNumber;
+        slot.bulkSeq = -1;
+        slot.price = price;
+        slot.size = size;
+        slot.tif = timeInForce;
+        slot.flags = (isBuy ? FLAG_BUY : 0) | (isReduceOnly ? FLAG_REDUCE_ONLY : 0);
+        copyAddress(subaccountAddr, slot.subaccount);
+        copyAddress(marketAddr, slot.market);
+        slot.hasTxHash = parseHash(txHash, slot.txHash);
+        slot.outcome = slot.hasTxHash ? OUTCOME_PENDING : OUTCOME_SUBMIT_FAILED;
+        slot.bidCount = 0;
+        slot.askCount = 0;
+        slot.publish(seq);
+    }
+
+    /**
+     * Record a bulk order ladder submission, or a cancel when all sides are empty.
+     *
+     * @param txHash Transaction hash, or null if the submission itself failed
+     */
+    public void recordBulk(AccountAddress subaccountAddr, AccountAddress marketAddr, long bulkSequenceNumber,
+                           long accountSequenceNumber, List<Long> bidPrices, List<Long> bidSizes,
+                           List<Long> askPrices, List<Long> askSizes, String txHash) {
+        long seq = claim();
+        if (seq < 0) {
+            return;
+        }
+        Slot slot = ring[(int) seq & ringMask];
+        boolean cancel = bidPrices.isEmpty() && askPrices.isEmpty();
+        slot.type = cancel ? TYPE_CANCEL : TYPE_BULK;
+        slot.timestampMillis = System.currentTimeMillis();
+        slot.accountSeq = accountSequenceNumber;
+        slot.bulkSeq = bulkSequenceNumber;
+        slot.price = 0;
+        slot.size = 0;
+        slot.tif = 0;
+        slot.flags = 0;
+        copyAddress(subaccountAddr, slot.subaccount);
+        copyAddress(marketAddr, slot.market);
+        slot.hasTxHash = parseHash(txHash, slot.txHash);
+        slot.outcome = slot.hasTxHash ? OUTCOME_PENDING : OUTCOME_SUBMIT_FAILED;
+        slot.bidCount = copyLevels(bidPrices, bidSizes, slot.bidPrices, slot.bidSizes);
+        slot.askCount = copyLevels(askPrices, askSizes, slot.askPrices, slot.askSizes);
+        if (slot.bidCount < Math.max(bidPrices.size(), bidSizes.size())
+                || slot.askCount < Math.max(askPrices.size(), askSizes.size())) {
+            slot.flags = FLAG_TRUNCATED;
+        }
+        slot.publish(seq);
+    }
+
+    /**
+     * Record the on-chain outcome of a previously recorded submission.
+     */
+    public void recordOutcome(String txHash, boolean committed) {
+        long seq = claim();
+        if (seq < 0) {
+            return;
+        }
+        Slot slot = ring[(int) seq & ringMask];
+        slot.type = TYPE_OUTCOME;
+        slot.timestampMillis = System.currentTimeMillis();
+        slot.accountSeq = 0;
+        slot.bulkSeq = -1;
+        slot.price = 0;
+        slot.size = 0;
+        slot.tif = 0;
+        slot.flags = 0;
+        Arrays.fill(slot.subaccount, (byte) 0);
+        Arrays.fill(slot.market, (byte) 0);
+        slot.hasTxHash = parseHash(txHash, slot.txHash);
+        slot.outcome = committed ? OUTCOME_COMMITTED : OUTCOME_FAILED;
+        slot.bidCount = 0;
+        slot.askCount = 0;
+        slot.publish(seq);
+    }
+
+    // Lookups
+
+    /**
+     * Look up a submission by transaction hash.
+     *
+     * @return The most recently recorded submission with that hash and its outcome, or null if not found
+     */
+    public synchronized JournalEntry findByTxHash(String txHash) {
+        byte[] hash = new byte[32];
+        if (!parseHash(txHash, hash)) {
+            return null;
+        }
+        long key = keyOf(hash);
+        // Positions grow with every record, so the largest match is the latest
+        long pos = txIndex.findMax(key, p -> regionEquals(p, OFF_TX_HASH, hash));
+        return pos < 0 ? null : readWithOutcome(pos);
+    }
+
+    /**
+     * Look up a bulk order or cancel by subaccount, market and bulk sequence number.
+     *
+     * @return The most recently recorded matching submission, or null if not found
+     */
+    public synchronized JournalEntry findBulk(AccountAddress subaccountAddr, AccountAddress marketAddr,
+                                              long bulkSequenceNumber) {
+        byte[] subaccount = subaccountAddr.toBytes();
+        byte[] market = marketAddr.toBytes();
+        long key = bulkKey(subaccount, market, bulkSequenceNumber);
+        long pos = bulkIndex.findMax(key, p -> readLong(p, OFF_BULK_SEQ) == bulkSequenceNumber
+            && regionEquals(p, OFF_SUBACCOUNT, subaccount)
+            && regionEquals(p, OFF_MARKET, market));
+        return pos < 0 ? null : readWithOutcome(pos);
+    }
+
+    /**
+     * @return Number of submissions indexed so far
+     */
+    public synchronized int size() {
+        return txIndex.size();
+    }
+
+    /**
+     * Stop the writer after draining all pending records, then flush and unmap the segments.
+     */
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            for (Segment segment : segments) {
+                segment.buffer.force();
+                try {
+                    segment.channel.close();
+                } catch (IOException e) {
+                    logger.warn("Failed to close journal segment {}: {}", segment.index, e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Producer hand-off
+
+    /**
+     * @return Claimed ring sequence, or -1 if the journal is closed and the record should be dropped
+     */
+    private long claim() {
+        if (!running) {
+            return -1L;
+        }
+        long seq = claimSequence.getAndIncrement();
+        if (seq < 0) {
+            // The writer exited between the running check and the claim
+            return -1L;
+        }
+        // Wait for the writer to free the slot if the ring has wrapped. The writer cannot exit while this
+        // claim is unpublished, so it will get to the slot unless it has died.
+        for (int spins = 0; seq - consumedSequence.get() >= ring.length; spins++) {
+            if (spins < MAX_SPINS) {
+                Thread.onSpinWait();
+            } else if (writer.isAlive()) {
+                LockSupport.parkNanos(50_000L);
+            } else {
+                logger.error("Order journal writer is not running; dropping record");
+                return -1L;
+            }
+        }
+        return seq;
+    }
+
+    private static void copyAddress(AccountAddress address, byte[] dst) {
+        byte[] bytes = address.toBytes();
+        System.arraycopy(bytes, 0, dst, dst.length - bytes.length, bytes.length);
+    }
+
+    private int copyLevels(List<Long> prices, List<Long> sizes, long[] dstPrices, long[] dstSizes) {
+        int count = Math.min(Math.min(prices.size(), sizes.size()), maxLevels);
+        for (int i = 0; i < count; i++) {
+            dstPrices[i] = prices.get(i);
+            dstSizes[i] = sizes.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Parse a hex transaction hash into a 32-byte buffer without allocating.
+     */
+    private static boolean parseHash(String txHash, byte[] dst) {
+        if (txHash == null) {
+            return false;
+        }
+        int start = txHash.startsWith("0x") ? 2 : 0;
+        int digits = txHash.length() - start;
+        if (digits == 0 || digits > 64) {
+            return false;
+        }
+        Arrays.fill(dst, (byte) 0);
+        // Right-align so short hashes are left-padded with zeros
+        int nibble = 64 - digits;
+        for (int i = start; i < txHash.length(); i++, nibble++) {
+            int v = Character.digit(txHash.charAt(i), 16);
+            if (v < 0) {
+                return false;
+            }
+            int b = nibble >> 1;
+            dst[b] = (byte) ((nibble & 1) == 0 ? v << 4 : (dst[b] | v));
+        }
+        return true;
+    }
+
+    // Writer thread
+
+    private void runWriter() {
+        long next = consumedSequence.get();
+        while (true) {
+            Slot slot = ring[(int) next & ringMask];
+            if (slot.sequence == next) {
+                try {
+                    write(slot);
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Failed to write journal record", e);
+                }
+                next++;
+                consumedSequence.lazySet(next);
+            } else if (!running && claimSequence.compareAndSet(next, CLOSED)) {
+                // Nothing is claimed beyond what was written, and later claims now fail
+                return;
+            } else {
+                LockSupport.parkNanos(50_000L);
+            }
+        }
+    }
+
+    private void write(Slot slot) throws IOException {
+        int length = align8(HEADER_SIZE + 16 * (slot.bidCount + slot.askCount));
+        if (writePosition + length + 4 > segmentSize) {
+            roll();
+        }
+        ByteBuffer buf = current.buffer;
+        int base = writePosition;
+        buf.put(base + OFF_TYPE, (byte) slot.type);
+        buf.put(base + OFF_FLAGS, (byte) (slot.flags | (slot.hasTxHash ? FLAG_HAS_TX_HASH : 0)));
+        buf.put(base + OFF_TIF, (byte) slot.tif);
+        buf.put(base + OFF_OUTCOME, (byte) slot.outcome);
+        buf.putLong(base + OFF_TIMESTAMP, slot.timestampMillis);
+        buf.putLong(base + OFF_ACCOUNT_SEQ, slot.accountSeq);
+        buf.putLong(base + OFF_BULK_SEQ, slot.bulkSeq);
+        buf.putLong(base + OFF_PRICE, slot.price);
+        buf.putLong(base + OFF_SIZE, slot.size);
+        buf.put(base + OFF_SUBACCOUNT, slot.subaccount);
+        buf.put(base + OFF_MARKET, slot.market);
+        buf.put(base + OFF_TX_HASH, slot.txHash);
+        buf.putInt(base + OFF_BID_COUNT, slot.bidCount);
+        buf.putInt(base + OFF_ASK_COUNT, slot.askCount);
+        int p = base + HEADER_SIZE;
+        for (int i = 0; i < slot.bidCount; i++, p += 16) {
+            buf.putLong(p, slot.bidPrices[i]);
+            buf.putLong(p + 8, slot.bidSizes[i]);
+        }
+        for (int i = 0; i < slot.askCount; i++, p += 16) {
+            buf.putLong(p, slot.askPrices[i]);
+            buf.putLong(p + 8, slot.askSizes[i]);
+        }
+        long pos = position(current.index, base);
+        synchronized (this) {
+            buf.putInt(base + OFF_LENGTH, length);
+            index(pos, slot.type, slot.hasTxHash, slot.txHash, slot.subaccount, slot.market, slot.bulkSeq);
+        }
+        writePosition += length;
+    }
+
+    private void index(long pos, int type, boolean hasTxHash, byte[] txHash,
+                       byte[] subaccount, byte[] market, long bulkSeq) {
+        if (type == TYPE_OUTCOME) {
+            outcomeIndex.put(keyOf(txHash), pos);
+            return;
+        }
+        if (hasTxHash) {
+            txIndex.put(keyOf(txHash), pos);
+        }
+        if (type == TYPE_BULK || type == TYPE_CANCEL) {
+            bulkIndex.put(bulkKey(subaccount, market, bulkSeq), pos);
+        }
+    }
+
+    private void roll() throws IOException {
+        if (current != null) {
+            current.buffer.force();
+        }
+        int nextIndex = current == null ? 0 : current.index + 1;
+        Segment segment = mapSegment(nextIndex);
+        synchronized (this) {
+            segments.add(segment);
+        }
+        current = segment;
+        writePosition = 0;
+        logger.info("Order journal rolled to segment {}", segmentPath(nextIndex).getFileName());
+    }
+
+    // Recovery
+
+    private void recover() throws IOException {
+        int index = 0;
+        while (Files.exists(segmentPath(index))) {
+            Segment segment = mapSegment(index);
+            segments.add(segment);
+            int p = 0;
+            while (p + 4 <= segment.buffer.capacity()) {
+                int length = segment.buffer.getInt(p + OFF_LENGTH);
+                if (length <= 0) {
+                    break;
+                }
+                int flags = segment.buffer.get(p + OFF_FLAGS);
+                segment.buffer.get(p + OFF_TX_HASH, scratch32);
+                byte[] subaccount = new byte[32];
+                byte[] market = new byte[32];
+                segment.buffer.get(p + OFF_SUBACCOUNT, subaccount);
+                segment.buffer.get(p + OFF_MARKET, market);
+                index(position(index, p), segment.buffer.get(p + OFF_TYPE), (flags & FLAG_HAS_TX_HASH) != 0,
+                    scratch32, subaccount, market, segment.buffer.getLong(p + OFF_BULK_SEQ));
+                p += length;
+            }
+            current = segment;
+            writePosition = p;
+            index++;
+        }
+        if (current == null) {
+            roll();
+        } else {
+            logger.info("Order journal recovered {} submissions from {} segment(s)", txIndex.size(), segments.size());
+        }
+    }
+
+    private Segment mapSegment(int index) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(index),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return new Segment(index, channel, buffer);
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("journal-%06d.seg", index));
+    }
+
+    // Reading (callers hold the lock)
+
+    private JournalEntry readWithOutcome(long pos) {
+        JournalEntry entry = read(pos);
+        if (entry.getTxHash() == null) {
+            return entry;
+        }
+        byte[] hash = new byte[32];
+        buffer(pos).get(offset(pos) + OFF_TX_HASH, hash);
+        long outcomePos = outcomeIndex.findMax(keyOf(hash), p -> regionEquals(p, OFF_TX_HASH, hash));
+        if (outcomePos < 0) {
+            return entry;
+        }
+        return entry.withOutcome(buffer(outcomePos).get(offset(outcomePos) + OFF_OUTCOME),
+            readLong(outcomePos, OFF_TIMESTAMP));
+    }
+
+    private JournalEntry read(long pos) {
+        ByteBuffer buf = buffer(pos);
+        int base = offset(pos);
+        int flags = buf.get(base + OFF_FLAGS);
+        byte[] subaccount = new byte[32];
+        byte[] market = new byte[32];
+        byte[] txHash = new byte[32];
+        buf.get(base + OFF_SUBACCOUNT, subaccount);
+        buf.get(base + OFF_MARKET, market);
+        buf.get(base + OFF_TX_HASH, txHash);
+        int bidCount = buf.getInt(base + OFF_BID_COUNT);
+        int askCount = buf.getInt(base + OFF_ASK_COUNT);
+        long[] bidPrices = new long[bidCount];
+        long[] bidSizes = new long[bidCount];
+        long[] askPrices = new long[askCount];
+        long[] askSizes = new long[askCount];
+        int p = base + HEADER_SIZE;
+        for (int i = 0; i < bidCount; i++, p += 16) {
+            bidPrices[i] = buf.getLong(p);
+            bidSizes[i] = buf.getLong(p + 8);
+        }
+        for (int i = 0; i < askCount; i++, p += 16) {
+            askPrices[i] = buf.getLong(p);
+            askSizes[i] = buf.getLong(p + 8);
+        }
+        return new JournalEntry(
+            buf.get(base + OFF_TYPE),
+            buf.getLong(base + OFF_TIMESTAMP),
+            toHex(subaccount),
+            toHex(market),
+            buf.getLong(base + OFF_ACCOUNT_SEQ),
+            buf.getLong(base + OFF_BULK_SEQ),
+            buf.getLong(base + OFF_PRICE),
+            buf.getLong(base + OFF_SIZE),
+            (flags & FLAG_BUY) != 0,
+            (flags & FLAG_REDUCE_ONLY) != 0,
+            buf.get(base + OFF_TIF),
+            (flags & FLAG_HAS_TX_HASH) != 0 ? toHex(txHash) : null,
+            bidPrices, bidSizes, askPrices, askSizes,
+            (flags & FLAG_TRUNCATED) != 0,
+            buf.get(base + OFF_OUTCOME),
+            0L
+        );
+    }
+
+    private boolean regionEquals(long pos, int fieldOffset, byte[] expected) {
+        ByteBuffer buf = buffer(pos);
+        int base = offset(pos) + fieldOffset;
+        for (int i = 0; i < expected.length; i++) {
+            if (buf.get(base + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long readLong(long pos, int fieldOffset) {
+        return buffer(pos).getLong(offset(pos) + fieldOffset);
+    }
+
+    private ByteBuffer buffer(long pos) {
+        return segments.get((int) (pos >>> 32)).buffer;
+    }
+
+    private static int offset(long pos) {
+        return (int) pos;
+    }
+
+    private static long position(int segmentIndex, int offset) {
+        return ((long) segmentIndex << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private static int align8(int n) {
+        return (n + 7) & ~7;
+    }
+
+    /**
+     * Transaction hashes are SHA3-256 output, so their leading bytes are already a good hash key.
+     */
+    private static long keyOf(byte[] hash) {
+        return ByteBuffer.wrap(hash, 0, 8).getLong();
+    }
+
+    private static long bulkKey(byte[] subaccount, byte[] market, long bulkSeq) {
+        long s = ByteBuffer.wrap(subaccount, 0, 8).getLong();
+        long m = ByteBuffer.wrap(market, 0, 8).getLong();
+        return (s * 31 + m) * 0x9E3779B97F4A7C15L + bulkSeq;
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] out = new char[2 + bytes.length * 2];
+        out[0] = '0';
+        out[1] = 'x';
+        for (int i = 0; i < bytes.length; i++) {
+            out[2 + i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            out[3 + i * 2] = HEX[bytes[i] & 0xF];
+        }
+        return new String(out);
+    }
+
+    /**
+     * Look up journal entries from the command line.
+     * Usage: {@code OrderJournal <dir> <txHash>} or {@code OrderJournal <dir> <subaccount> <market> <bulkSeq>}
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2 && args.length != 4) {
+            System.err.println("Usage: OrderJournal <dir> <txHash> | <dir> <subaccount> <market> <bulkSeq>");
+            System.exit(2);
+        }
+        try (OrderJournal journal = OrderJournal.open(Paths.get(args[0]))) {
+            JournalEntry entry = args.length == 2
+                ? journal.findByTxHash(args[1])
+                : journal.findBulk(AccountAddress.fromHex(args[1]), AccountAddress.fromHex(args[2]),
+                    Long.parseLong(args[3]));
+            System.out.println(entry == null ? "Not found" : entry.toString());
+        }
+    }
+
+    /**
+     * Preallocated hand-off slot. Fields are written by one producer and read by the writer
+     * after the volatile sequence publish.
+     */
+    private static final class Slot {
+        volatile long sequence = -1;
+        int type;
+        int flags;
+        int tif;
+        int outcome;
+        long timestampMillis;
+        long accountSeq;
+        long bulkSeq;
+        long price;
+        long size;
+        boolean hasTxHash;
+        final byte[] subaccount = new byte[32];
+        final byte[] market = new byte[32];
+        final byte[] txHash = new byte[32];
+        int bidCount;
+        int askCount;
+        final long[] bidPrices;
+        final long[] bidSizes;
+        final long[] askPrices;
+        final long[] askSizes;
+
+        Slot(int maxLevels) {
+            bidPrices = new long[maxLevels];
+            bidSizes = new long[maxLevels];
+            askPrices = new long[maxLevels];
+            askSizes = new long[maxLevels];
+        }
+
+        void publish(long seq) {
+            sequence = seq;
+        }
+    }
+
+    private static final class Segment {
+        final int index;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+
+        Segment(int index, FileChannel channel, MappedByteBuffer buffer) {
+            this.index = index;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+}
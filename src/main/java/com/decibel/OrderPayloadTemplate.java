@@ -0,0 +1,75 @@
+package com.decibel;
+
+import com.aptoslabs.japtos.core.AccountAddress;
+import com.aptoslabs.japtos.types.EntryFunctionPayload;
+import com.aptoslabs.japtos.types.Identifier;
+import com.aptoslabs.japtos.types.ModuleId;
+import com.aptoslabs.japtos.types.MoveOption;
+import com.aptoslabs.japtos.types.TransactionArgument;
+import com.aptoslabs.japtos.types.TransactionPayload;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Pre-built {@code place_order_to_subaccount} payload for one subaccount and market.
+ *
+ * <p>The module, function, subaccount and market arguments and the unused optional parameters are built
+ * once. {@link #build} only adds the per-order price, size, side, time in force and reduce-only flag,
+ * which keeps payload construction off the critical path of latency-sensitive orders such as hedges.</p>
+ */
+public final class OrderPayloadTemplate {
+    private final AccountAddress subaccountAddr;
+    private final AccountAddress marketAddr;
+    private final ModuleId moduleId;
+    private final Identifier function;
+    private final TransactionArgument subaccountArg;
+    private final TransactionArgument marketArg;
+    private final List<TransactionArgument> optionalArgs;
+
+    public OrderPayloadTemplate(AccountAddress packageAddress, AccountAddress subaccountAddr, AccountAddress marketAddr) {
+        this.subaccountAddr = subaccountAddr;
+        this.marketAddr = marketAddr;
+        this.moduleId = new ModuleId(packageAddress, new Identifier("dex_accounts_entry"));
+        this.function = new Identifier("place_order_to_subaccount");
+        this.subaccountArg = new TransactionArgument.AccountAddress(subaccountAddr);
+        this.marketArg = new TransactionArgument.AccountAddress(marketAddr);
+        // Optional parameters
+        this.optionalArgs = Collections.unmodifiableList(Arrays.asList(
+            MoveOption.<TransactionArgument.String>empty(),
+            MoveOption.<TransactionArgument.U64>empty(),
+            MoveOption.<TransactionArgument.U64>empty(),
+            MoveOption.<TransactionArgument.U64>empty(),
+            MoveOption.<TransactionArgument.U64>empty(),
+            MoveOption.<TransactionArgument.U64>empty(),
+            MoveOption.<TransactionArgument.AccountAddress>empty(),
+            MoveOption.<TransactionArgument.U64>empty()
+        ));
+    }
+
+    /**
+     * Build the payload for one order.
+     */
+    public TransactionPayload build(long price, long size, boolean isBuy, int timeInForce, boolean isReduceOnly) {
+        List<TransactionArgument> functionArgs = new ArrayList<>(7 + optionalArgs.size());
+        functionArgs.add(subaccountArg);
+        functionArgs.add(marketArg);
+        functionArgs.add(new TransactionArgument.U64(price));
+        functionArgs.add(new TransactionArgument.U64(size));
+        functionArgs.add(new TransactionArgument.Bool(isBuy));
+        functionArgs.add(new TransactionArgument.U8((byte) timeInForce));
+        functionArgs.add(new TransactionArgument.Bool(isReduceOnly));
+        functionArgs.addAll(optionalArgs);
+        return new EntryFunctionPayload(moduleId, function, Arrays.asList(), functionArgs);
+    }
+
+    public AccountAddress getSubaccountAddr() {
+        return subaccountAddr;
+    }
+
+    public AccountAddress getMarketAddr() {
+        return marketAddr;
+    }
+}
@@ -0,0 +1,519 @@
+package com.decibel;
+
+import com.aptoslabs.japtos.account.Ed25519Account;
+import com.aptoslabs.japtos.client.AptosClient;
+import com.aptoslabs.japtos.core.AccountAddress;
+import com.aptoslabs.japtos.transaction.SignedTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Staged tick-to-trade pipeline: market data, fair value, ladder, risk, sign, submit.
+ *
+ * <p>Stages are connected by one preallocated ring of reusable {@link TickEvent}s. The market data thread
+ * is the single producer. Each stage runs on its own thread and follows the stage before it through the
+ * ring, so an event moves between stages without being copied or allocated. The producer never blocks:
+ * a tick that arrives while the ring is full is dropped and counted, since a newer tick will replace it
+ * anyway. Every stage stamps the event with {@code System.nanoTime()}. Per-stage and end-to-end
+ * latencies are kept in {@link LatencyHistogram}s.</p>
+ *
+ * <p>Idle stages wait according to a {@link WaitStrategy}. {@code BUSY_SPIN} gives the lowest latency
+ * and burns a core per stage. {@code YIELD} and {@code PARK} give CPU back at the cost of wake-up
+ * latency.</p>
+ *
+ * <p>The sign stage builds each transaction and queues it with
+ * {@link DecibelTransactions#signBulkOrdersAsync} without waiting; the submit stage takes the signature when
+ * it is ready. The sign stage conflates: when several ladders are waiting it signs only the newest, since
+ * each ladder replaces the one before it. Skipped ladders use no sequence numbers.</p>
+ *
+ * <p>The sign stage assigns bulk sequence numbers locally and takes account sequence numbers from an
+ * {@link AccountSequencer}, so the account must not be used by any other submitter while the pipeline
+ * runs. The submit stage does not wait for the commit; commits are awaited off the pipeline through
+ * {@link DecibelTransactions#awaitBulkCommit}, and a failed submission or commit resyncs the account
+ * sequence number once the quotes in flight have settled. The risk engine, if any, is given
+ * each tick's mid as the mark price and reserves each ladder in the risk stage. The reservation is settled
+ * as accepted as soon as a fullnode takes the ladder, since each ladder replaces the previous one, and
+ * released if the ladder is not signed or not submitted.</p>
+ */
+public class QuotePipeline implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(QuotePipeline.class);
+
+    public enum Stage {
+        MARKET_DATA, FAIR_VALUE, LADDER, RISK, SIGN, SUBMIT
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    /**
+     * How a stage waits for the stage before it.
+     */
+    public enum WaitStrategy {
+        /** Spin on the CPU; lowest latency, one busy core per stage */
+        BUSY_SPIN,
+        /** Spin briefly, then yield the core to other threads */
+        YIELD,
+        /** Spin, then yield, then park for short intervals; lowest CPU use */
+        PARK;
+
+        private static final int SPIN_TRIES = 100;
+        private static final int YIELD_TRIES = 200;
+        private static final long PARK_NANOS = 50_000;
+
+        /**
+         * @param idle Consecutive idle calls so far
+         * @return The new idle count
+         */
+        int idle(int idle) {
+            if (this == BUSY_SPIN || idle < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (this == YIELD || idle < YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+            return idle + 1;
+        }
+
+        public static WaitStrategy parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    /**
+     * Reusable ring slot. Fields are written by one stage and read by the stages after it.
+     */
+    public static final class TickEvent {
+        long midPrice;
+        long fairValue;
+        final long[] bidPrices;
+        final long[] bidSizes;
+        final long[] askPrices;
+        final long[] askSizes;
+        int bidCount;
+        int askCount;
+        final LongListView bidPriceList;
+        final LongListView bidSizeList;
+        final LongListView askPriceList;
+        final LongListView askSizeList;
+        int result;
+        boolean reserved;
+        long bulkSequenceNumber;
+        long accountSequenceNumber;
+        CompletableFuture<SignedTransaction> signing;
+        String txHash;
+        final long[] stamps = new long[STAGES.length];
+
+        TickEvent(int levels) {
+            bidPrices = new long[levels];
+            bidSizes = new long[levels];
+            askPrices = new long[levels];
+            askSizes = new long[levels];
+            bidPriceList = new LongListView(bidPrices);
+            bidSizeList = new LongListView(bidSizes);
+            askPriceList = new LongListView(askPrices);
+            askSizeList = new LongListView(askSizes);
+        }
+
+        void reset(long midPrice, long receivedNanos) {
+            this.midPrice = midPrice;
+            this.fairValue = 0;
+            this.bidCount = 0;
+            this.askCount = 0;
+            this.result = RiskEngine.OK;
+            this.reserved = false;
+            this.bulkSequenceNumber = -1;
+            this.accountSequenceNumber = -1;
+            this.signing = null;
+            this.txHash = null;
+            this.stamps[Stage.MARKET_DATA.ordinal()] = receivedNanos;
+        }
+
+        void setCounts(int bidCount, int askCount) {
+            this.bidCount = bidCount;
+            this.askCount = askCount;
+            bidPriceList.size = bidCount;
+            bidSizeList.size = bidCount;
+            askPriceList.size = askCount;
+            askSizeList.size = askCount;
+        }
+    }
+
+    /**
+     * Boxing list view over the first {@code size} elements of a preallocated array, for the List-based
+     * transaction APIs.
+     */
+    static final class LongListView extends AbstractList<Long> {
+        private final long[] values;
+        int size;
+
+        LongListView(long[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Long get(int index) {
+            if (index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Count of events a stage has finished, padded onto its own cache lines.
+     */
+    @SuppressWarnings("unused")
+    static final class Sequence {
+        long p1, p2, p3, p4, p5, p6, p7;
+        volatile long value;
+        long q1, q2, q3, q4, q5, q6, q7;
+    }
+
+    private final AptosClient client;
+    private final Ed25519Account account;
+    private final AccountAddress packageAddress;
+    private final AccountAddress subaccountAddr;
+    private final MarketConfig market;
+    private final RiskEngine riskEngine;
+    private final int riskSubaccountId;
+    private final int riskMarketId;
+    private final int chainId;
+    private final LongUnaryOperator fairValueModel;
+    private final double[] offsets;
+    private final long levelSize;
+    private final WaitStrategy waitStrategy;
+
+    private final TickEvent[] ring;
+    private final int mask;
+    private final Sequence published = new Sequence();
+    // Index i is the sequence of STAGES[i + 1]
+    private final Sequence[] processed = new Sequence[STAGES.length - 1];
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+    private long dropped;
+    // Written only by the sign stage
+    private volatile long conflated;
+
+    private final LatencyHistogram[] stageLatency = new LatencyHistogram[STAGES.length];
+    private final LatencyHistogram tickToTrade = new LatencyHistogram();
+    private final LatencyHistogram tickToSubmit = new LatencyHistogram();
+
+    private final AccountSequencer sequencer;
+    // Written only by the sign stage
+    private volatile long nextBulkSequenceNumber;
+
+    /**
+     * @param riskEngine Engine to check each ladder against, or null to skip risk checks
+     * @param fairValueModel Maps a mid price to the fair value the ladder is centered on
+     * @param offsets Fractional distance of each level from fair value (e.g. 0.01 for 1%), nearest first
+     * @param levelSize Size of every level, before lot rounding
+     * @param bulkSequenceNumber First bulk order sequence number to use
+     * @param capacity Ring size, rounded up to a power of two
+     */
+    public QuotePipeline(AptosClient client, Ed25519Account account, AccountAddress packageAddress,
+                         AccountAddress subaccountAddr, MarketConfig market, RiskEngine riskEngine, int chainId,
+                         LongUnaryOperator fairValueModel, double[] offsets, long levelSize,
+                         long bulkSequenceNumber, int capacity, WaitStrategy waitStrategy) {
+        this.client = client;
+        this.account = account;
+        this.packageAddress = packageAddress;
+        this.subaccountAddr = subaccountAddr;
+        this.market = market;
+        this.riskEngine = riskEngine;
+        this.riskSubaccountId = riskEngine != null ? riskEngine.subaccountId(subaccountAddr) : -1;
+        this.riskMarketId = riskEngine != null ? riskEngine.marketId(market.getMarketAddr()) : -1;
+        if (riskEngine != null && (riskSubaccountId < 0 || riskMarketId < 0)) {
+            throw new IllegalArgumentException("Subaccount and market must be registered with the risk engine");
+        }
+        this.chainId = chainId;
+        this.fairValueModel = fairValueModel;
+        this.offsets = offsets.clone();
+        this.levelSize = levelSize;
+        this.nextBulkSequenceNumber = bulkSequenceNumber;
+        this.sequencer = new AccountSequencer(client, account);
+        this.waitStrategy = waitStrategy;
+
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.ring = new TickEvent[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new TickEvent(offsets.length);
+        }
+        this.mask = size - 1;
+        for (int i = 0; i < processed.length; i++) {
+            processed[i] = new Sequence();
+        }
+        for (int i = 0; i < stageLatency.length; i++) {
+            stageLatency[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Read the first account sequence number and start the stage threads.
+     */
+    public void start() throws Exception {
+        sequencer.sync();
+        running = true;
+        for (int i = 1; i < STAGES.length; i++) {
+            Stage stage = STAGES[i];
+            Sequence upstream = i == 1 ? published : processed[i - 2];
+            Sequence own = processed[i - 1];
+            Thread thread = new Thread(() -> runStage(stage, upstream, own),
+                "quote-" + stage.name().toLowerCase(Locale.ROOT).replace('_', '-'));
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Publish a new mid price. Must only be called from one thread.
+     *
+     * @return False if the ring was full and the tick was dropped
+     */
+    public boolean onMarketData(long midPrice) {
+        long receivedNanos = System.nanoTime();
+        long next = published.value;
+        if (next - processed[processed.length - 1].value >= ring.length) {
+            dropped++;
+            return false;
+        }
+        ring[(int) (next & mask)].reset(midPrice, receivedNanos);
+        published.value = next + 1;
+        return true;
+    }
+
+    /**
+     * Wait until every published tick has been through the submit stage and every submitted quote has
+     * committed or failed, e.g. before cancelling the account's orders outside the pipeline. Stop publishing
+     * ticks first.
+     *
+     * @return False if the pipeline did not drain within the timeout
+     */
+    public boolean awaitDrained(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        Sequence submitted = processed[processed.length - 1];
+        while (submitted.value < published.value || sequencer.getInFlight() > 0) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    /**
+     * @return The bulk order sequence number the next signed quote will use
+     */
+    public long getNextBulkSequenceNumber() {
+        return nextBulkSequenceNumber;
+    }
+
+    /**
+     * @return Ticks dropped because the ring was full; read from the producer thread
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return Ladders the sign stage skipped because a newer one was already waiting
+     */
+    public long getConflated() {
+        return conflated;
+    }
+
+    /**
+     * @return Time spent in a stage, from the previous stage's stamp to its own
+     */
+    public LatencyHistogram getStageLatency(Stage stage) {
+        return stageLatency[stage.ordinal()];
+    }
+
+    /**
+     * @return Market data to signed transaction, i.e. everything before network I/O
+     */
+    public LatencyHistogram getTickToTrade() {
+        return tickToTrade;
+    }
+
+    /**
+     * @return Market data to submission accepted by a fullnode
+     */
+    public LatencyHistogram getTickToSubmit() {
+        return tickToSubmit;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        for (Thread thread : threads) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        logger.info("Tick to trade: {}", tickToTrade);
+        logger.info("Tick to submit: {}", tickToSubmit);
+        logger.info("Conflated {} ladders", conflated);
+    }
+
+    private void runStage(Stage stage, Sequence upstream, Sequence own) {
+        LatencyHistogram latency = stageLatency[stage.ordinal()];
+        int previous = stage.ordinal() - 1;
+        long next = own.value;
+        int idle = 0;
+        while (running) {
+            long available = upstream.value;
+            if (next >= available) {
+                idle = waitStrategy.idle(idle);
+                continue;
+            }
+            idle = 0;
+            // Drain everything available before publishing progress
+            while (next < available) {
+                TickEvent event = ring[(int) (next & mask)];
+                if (stage == Stage.SIGN && next < available - 1) {
+                    // A newer ladder is already waiting and would replace this one; the submit stage
+                    // releases its risk reservation
+                    conflated++;
+                } else {
+                    process(stage, event);
+                }
+                long now = System.nanoTime();
+                event.stamps[stage.ordinal()] = now;
+                latency.record(now - event.stamps[previous]);
+                next++;
+            }
+            own.value = next;
+        }
+    }
+
+    private void process(Stage stage, TickEvent event) {
+        switch (stage) {
+            case FAIR_VALUE:
+                event.fairValue = fairValueModel.applyAsLong(event.midPrice);
+                break;
+            case LADDER:
+                buildLadder(event);
+                break;
+            case RISK:
+                if (riskEngine != null) {
+                    // Value the position at the latest mid, so margin checks track the market
+                    riskEngine.setMarkPrice(riskMarketId, event.midPrice);
+                    if (event.result == RiskEngine.OK) {
+                        event.result = riskEngine.reserveBulk(riskSubaccountId, riskMarketId,
+                            event.bidPrices, event.bidSizes, event.bidCount,
+                            event.askPrices, event.askSizes, event.askCount);
+                        event.reserved = event.result == RiskEngine.OK;
+                    }
+                }
+                break;
+            case SIGN:
+                if (event.result == RiskEngine.OK) {
+                    sign(event);
+                }
+                break;
+            case SUBMIT:
+                if (event.signing != null) {
+                    submit(event);
+                } else if (event.reserved) {
+                    riskEngine.releaseBulk(riskSubaccountId, riskMarketId);
+                }
+                break;
+            default:
+                throw new IllegalStateException("No processing for " + stage);
+        }
+    }
+
+    private void buildLadder(TickEvent event) {
+        int levels = offsets.length;
+        long fairValue = event.fairValue;
+        for (int i = 0; i < levels; i++) {
+            event.bidPrices[i] = (long) (fairValue * (1 - offsets[i]));
+            event.askPrices[i] = (long) (fairValue * (1 + offsets[i]));
+            event.bidSizes[i] = levelSize;
+            event.askSizes[i] = levelSize;
+        }
+        // Round bids down and asks up, away from the touch
+        market.roundPricesToTick(event.bidPrices, 0, levels, false);
+        market.roundPricesToTick(event.askPrices, 0, levels, true);
+        market.roundSizesToLot(event.bidSizes, 0, levels);
+        market.roundSizesToLot(event.askSizes, 0, levels);
+        event.setCounts(levels, levels);
+        int badBid = market.validateLadder(event.bidPrices, event.bidSizes, levels, true);
+        int badAsk = market.validateLadder(event.askPrices, event.askSizes, levels, false);
+        if (badBid >= 0 || badAsk >= 0) {
+            boolean size = badBid >= 0 ? event.bidSizes[badBid] < market.getMinSize()
+                : event.askSizes[badAsk] < market.getMinSize();
+            event.result = size ? RiskEngine.REJECT_MIN_SIZE : RiskEngine.REJECT_PRICE;
+        }
+    }
+
+    private void sign(TickEvent event) {
+        long accountSequenceNumber = -1;
+        try {
+            // Waits for the quotes in flight to settle if an earlier one failed
+            accountSequenceNumber = sequencer.next();
+            event.bulkSequenceNumber = nextBulkSequenceNumber;
+            event.accountSequenceNumber = accountSequenceNumber;
+            // Only the build runs here; the submit stage picks the signature up once the signing stage is done
+            event.signing = DecibelTransactions.signBulkOrdersAsync(account, packageAddress, subaccountAddr,
+                market.getMarketAddr(), event.bulkSequenceNumber, event.bidPriceList, event.bidSizeList,
+                event.askPriceList, event.askSizeList, event.accountSequenceNumber, chainId);
+            nextBulkSequenceNumber++;
+            long receivedNanos = event.stamps[Stage.MARKET_DATA.ordinal()];
+            event.signing.thenRun(() -> tickToTrade.record(System.nanoTime() - receivedNanos));
+        } catch (Exception e) {
+            if (accountSequenceNumber >= 0) {
+                sequencer.fail();
+            }
+            logger.error("Quote signing failed: {}", e.getMessage());
+        }
+    }
+
+    private void submit(TickEvent event) {
+        try {
+            // The event, and the ladder arrays the signer reads, stay with this stage until the signature is done
+            SignedTransaction signedTx = event.signing.join();
+            event.txHash = DecibelTransactions.submitBulkOrders(client, signedTx, subaccountAddr,
+                market.getMarketAddr(), event.bulkSequenceNumber, event.accountSequenceNumber,
+                event.bidPriceList, event.bidSizeList, event.askPriceList, event.askSizeList);
+            tickToSubmit.record(System.nanoTime() - event.stamps[Stage.MARKET_DATA.ordinal()]);
+            if (riskEngine != null) {
+                riskEngine.onBulkAccepted(riskSubaccountId, riskMarketId, event.bidPrices, event.bidSizes,
+                    event.bidCount, event.askPrices, event.askSizes, event.askCount);
+            }
+            CompletableFuture<Void> commit = DecibelTransactions.awaitBulkCommit(client, event.txHash,
+                market.getMarketAddr(), event.bulkSequenceNumber, event.accountSequenceNumber);
+            commit.whenComplete((ignored, e) -> {
+                if (e == null) {
+                    sequencer.complete();
+                } else {
+                    sequencer.fail();
+                }
+            });
+        } catch (Exception e) {
+            if (riskEngine != null) {
+                riskEngine.releaseBulk(riskSubaccountId, riskMarketId);
+            }
+            // Later quotes may already be signed past a sequence number the chain never saw
+            sequencer.fail();
+            logger.error("Quote {} submission failed: {}", event.bulkSequenceNumber, e.getMessage());
+        }
+    }
+}
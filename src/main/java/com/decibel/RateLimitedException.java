@@ -0,0 +1,23 @@
+package com.decibel;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an endpoint rate-limits a request (HTTP 429), or when {@link AdaptiveLimiter}
+ * sheds or times out a request locally instead of sending it.
+ */
+public class RateLimitedException extends IOException {
+    private final long retryAfterMillis;
+
+    public RateLimitedException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * @return How long the endpoint asked us to back off, or 0 if it did not say
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,740 @@
+package com.decibel;
+
+import com.aptoslabs.japtos.core.AccountAddress;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * In-memory pre-trade risk engine that validates orders against {@link MarketConfig} limits before submission.
+ *
+ * <p>Markets and subaccounts are assigned dense integer ids on registration, and all per-market,
+ * per-subaccount and per-(subaccount, market) state lives in preallocated primitive arrays. Cells for one
+ * subaccount are contiguous, so a margin check walks a single cache-friendly row.</p>
+ *
+ * <p>Units follow the on-chain integer representation: prices carry the market's price decimals, sizes
+ * carry its size decimals, and notional and collateral are quote amounts in price units
+ * ({@code price * size / 10^sizeDecimals}). Open interest limits are in size units.</p>
+ *
+ * <p>Checks return {@link #OK} or a {@code REJECT_*} code rather than throwing, so they can run on the
+ * quoting thread without allocation. All methods are synchronized; the lock is uncontended when the
+ * engine is confined to one quoting thread.</p>
+ *
+ * <p>Submitters use {@link #reserveOrder} and {@link #reserveBulk}, which check and claim the exposure in
+ * one step, so concurrent submitters cannot all pass against the same headroom. A reservation is released
+ * if the order fails and kept as resting exposure once it commits. Positions only move with
+ * {@link #onFill} and {@link #setPosition}, and are valued at the mark price, so something must feed both
+ * for the leverage, open interest and reduce-only checks to mean anything.</p>
+ */
+public class RiskEngine {
+    public static final int OK = 0;
+    public static final int REJECT_UNKNOWN_MARKET = 1;
+    public static final int REJECT_UNKNOWN_SUBACCOUNT = 2;
+    public static final int REJECT_PRICE = 3;
+    public static final int REJECT_TICK_SIZE = 4;
+    public static final int REJECT_MIN_SIZE = 5;
+    public static final int REJECT_LOT_SIZE = 6;
+    public static final int REJECT_ORDER_NOTIONAL = 7;
+    public static final int REJECT_GROSS_NOTIONAL = 8;
+    public static final int REJECT_LEVERAGE = 9;
+    public static final int REJECT_OPEN_INTEREST = 10;
+    public static final int REJECT_REDUCE_ONLY = 11;
+    public static final int REJECT_LADDER_LENGTH = 12;
+
+    private static final int TIF_IOC = 2;
+
+    private final int maxMarkets;
+    private final int maxSubaccounts;
+    private int marketCount;
+    private int subaccountCount;
+    // Engine ids indexed by AddressTable id, -1 where unregistered
+    private int[] marketIds = new int[0];
+    private int[] subaccountIds = new int[0];
+
+    // Per market
+    private final long[] tickSize;
+    private final long[] lotSize;
+    private final long[] minSize;
+    private final int[] maxLeverage;
+    private final long[] maxOpenInterest;
+    private final double[] sizeScale;
+    private final long[] markPrice;
+    private final long[] marketOpenInterest;
+    private final double[] maxOrderNotional;
+
+    // Per subaccount
+    private final double[] collateral;
+    private final double[] maxGrossNotional;
+
+    // Per (subaccount, market) cell at subaccountId * maxMarkets + marketId
+    private final long[] position;
+    private final long[] openBuySize;
+    private final long[] openSellSize;
+    private final double[] openNotional;
+    private final long[] bulkBuySize;
+    private final long[] bulkSellSize;
+    private final double[] bulkNotional;
+    // Largest ladder reserved but not yet committed, cleared when the last one settles
+    private final long[] reservedBulkBuySize;
+    private final long[] reservedBulkSellSize;
+    private final double[] reservedBulkNotional;
+    private final int[] bulkInFlight;
+
+    // Scratch space for unboxing bulk ladders passed as lists
+    private long[] scratchBidPrices = new long[64];
+    private long[] scratchBidSizes = new long[64];
+    private long[] scratchAskPrices = new long[64];
+    private long[] scratchAskSizes = new long[64];
+
+    /**
+     * Create a new RiskEngine with fixed capacity.
+     *
+     * @param maxSubaccounts Maximum number of subaccounts that can be registered
+     * @param maxMarkets Maximum number of markets that can be registered
+     */
+    public RiskEngine(int maxSubaccounts, int maxMarkets) {
+        this.maxSubaccounts = maxSubaccounts;
+        this.maxMarkets = maxMarkets;
+
+        this.tickSize = new long[maxMarkets];
+        this.lotSize = new long[maxMarkets];
+        this.minSize = new long[maxMarkets];
+        this.maxLeverage = new int[maxMarkets];
+        this.maxOpenInterest = new long[maxMarkets];
+        this.sizeScale = new double[maxMarkets];
+        this.markPrice = new long[maxMarkets];
+        this.marketOpenInterest = new long[maxMarkets];
+        this.maxOrderNotional = new double[maxMarkets];
+
+        this.collateral = new double[maxSubaccounts];
+        this.maxGrossNotional = new double[maxSubaccounts];
+
+        int cells = maxSubaccounts * maxMarkets;
+        this.position = new long[cells];
+        this.openBuySize = new long[cells];
+        this.openSellSize = new long[cells];
+        this.openNotional = new double[cells];
+        this.bulkBuySize = new long[cells];
+        this.bulkSellSize = new long[cells];
+        this.bulkNotional = new double[cells];
+        this.reservedBulkBuySize = new long[cells];
+        this.reservedBulkSellSize = new long[cells];
+        this.reservedBulkNotional = new double[cells];
+        this.bulkInFlight = new int[cells];
+    }
+
+    // Registration and reference data
+
+    /**
+     * Register a market, or refresh its limits if already registered.
+     *
+     * @return Dense market id
+     */
+    public synchronized int registerMarket(MarketConfig config) {
+        int addrId = config.getMarketAddrId();
+        marketIds = ensureIndex(marketIds, addrId);
+        int id = marketIds[addrId];
+        if (id < 0) {
+            if (marketCount == maxMarkets) {
+                throw new IllegalStateException("Risk engine market capacity exhausted: " + maxMarkets);
+            }
+            id = marketCount++;
+            marketIds[addrId] = id;
+            maxOrderNotional[id] = Double.MAX_VALUE;
+        }
+        tickSize[id] = Math.max(config.getTickSize(), 1);
+        lotSize[id] = Math.max(config.getLotSize(), 1);
+        minSize[id] = config.getMinSize();
+        maxLeverage[id] = Math.max(config.getMaxLeverage(), 1);
+        maxOpenInterest[id] = config.getMaxOpenInterest() > 0 ? config.getMaxOpenInterest() : Long.MAX_VALUE;
+        sizeScale[id] = 1.0 / Math.pow(10, config.getSizeDecimals());
+        return id;
+    }
+
+    /**
+     * Register a subaccount with its collateral, or update the collateral if already registered.
+     *
+     * @param collateral Collateral in quote price units
+     * @return Dense subaccount id
+     */
+    public synchronized int registerSubaccount(AccountAddress subaccountAddr, double collateral) {
+        int addrId = AddressTable.id(subaccountAddr);
+        subaccountIds = ensureIndex(subaccountIds, addrId);
+        int id = subaccountIds[addrId];
+        if (id < 0) {
+            if (subaccountCount == maxSubaccounts) {
+                throw new IllegalStateException("Risk engine subaccount capacity exhausted: " + maxSubaccounts);
+            }
+            id = subaccountCount++;
+            subaccountIds[addrId] = id;
+            maxGrossNotional[id] = Double.MAX_VALUE;
+        }
+        this.collateral[id] = collateral;
+        return id;
+    }
+
+    /**
+     * @return Market id, or -1 if not registered
+     */
+    public synchronized int marketId(AccountAddress marketAddr) {
+        return lookup(marketIds, marketAddr);
+    }
+
+    /**
+     * @return Subaccount id, or -1 if not registered
+     */
+    public synchronized int subaccountId(AccountAddress subaccountAddr) {
+        return lookup(subaccountIds, subaccountAddr);
+    }
+
+    public synchronized void setCollateral(int subaccountId, double amount) {
+        collateral[subaccountId] = amount;
+    }
+
+    /**
+     * Set a custom cap on a subaccount's gross notional exposure across all markets.
+     */
+    public synchronized void setMaxGrossNotional(int subaccountId, double notional) {
+        maxGrossNotional[subaccountId] = notional;
+    }
+
+    /**
+     * Set a custom cap on the notional of any single order or ladder level in a market.
+     */
+    public synchronized void setMaxOrderNotional(int marketId, double notional) {
+        maxOrderNotional[marketId] = notional;
+    }
+
+    /**
+     * Set the price used to value positions when computing margin.
+     */
+    public synchronized void setMarkPrice(int marketId, long price) {
+        markPrice[marketId] = price;
+    }
+
+    /**
+     * Overwrite a position, e.g. with one read from the chain.
+     */
+    public synchronized void setPosition(int subaccountId, int marketId, long size) {
+        position[cell(subaccountId, marketId)] = size;
+    }
+
+    /**
+     * Set the market-wide open interest, so new exposure is checked against the remaining headroom.
+     */
+    public synchronized void setMarketOpenInterest(int marketId, long openInterest) {
+        marketOpenInterest[marketId] = openInterest;
+    }
+
+    // Checks
+
+    /**
+     * Validate a single order by address.
+     *
+     * @return {@link #OK} or a {@code REJECT_*} code
+     */
+    public synchronized int checkOrder(AccountAddress subaccountAddr, AccountAddress marketAddr, long price,
+                                       long size, boolean isBuy, boolean isReduceOnly) {
+        int sub = lookup(subaccountIds, subaccountAddr);
+        if (sub < 0) {
+            return REJECT_UNKNOWN_SUBACCOUNT;
+        }
+        int market = lookup(marketIds, marketAddr);
+        if (market < 0) {
+            return REJECT_UNKNOWN_MARKET;
+        }
+        return checkOrder(sub, market, price, size, isBuy, isReduceOnly);
+    }
+
+    /**
+     * Validate a single order against tick, lot, minimum size, notional, open interest and leverage limits.
+     *
+     * @return {@link #OK} or a {@code REJECT_*} code
+     */
+    public synchronized int checkOrder(int subaccountId, int marketId, long price, long size,
+                                       boolean isBuy, boolean isReduceOnly) {
+        int result = checkLevel(marketId, price, size);
+        if (result != OK) {
+            return result;
+        }
+        int cell = cell(subaccountId, marketId);
+        long pos = position[cell];
+        if (isReduceOnly) {
+            boolean reduces = isBuy ? pos < 0 && size <= -pos : pos > 0 && size <= pos;
+            return reduces ? OK : REJECT_REDUCE_ONLY;
+        }
+
+        // Worst case: this order and every resting order on the same side fills
+        long worst = isBuy
+            ? pos + openBuySize[cell] + Math.max(bulkBuySize[cell], reservedBulkBuySize[cell]) + size
+            : pos - openSellSize[cell] - Math.max(bulkSellSize[cell], reservedBulkSellSize[cell]) - size;
+        if (!openInterestOk(marketId, pos, worst)) {
+            return REJECT_OPEN_INTEREST;
+        }
+
+        double notional = price * (double) size * sizeScale[marketId];
+        return checkExposure(subaccountId, marketId, notional, notional / maxLeverage[marketId]);
+    }
+
+    /**
+     * Validate a bulk order ladder by address. The ladder replaces any resting bulk order in the market.
+     *
+     * @return {@link #OK} or a {@code REJECT_*} code
+     */
+    public synchronized int checkBulk(AccountAddress subaccountAddr, AccountAddress marketAddr,
+                                      List<Long> bidPrices, List<Long> bidSizes,
+                                      List<Long> askPrices, List<Long> askSizes) {
+        int sub = lookup(subaccountIds, subaccountAddr);
+        if (sub < 0) {
+            return REJECT_UNKNOWN_SUBACCOUNT;
+        }
+        int market = lookup(marketIds, marketAddr);
+        if (market < 0) {
+            return REJECT_UNKNOWN_MARKET;
+        }
+        int bidCount = unboxBids(bidPrices, bidSizes);
+        int askCount = unboxAsks(askPrices, askSizes);
+        if (bidCount < 0 || askCount < 0) {
+            return REJECT_LADDER_LENGTH;
+        }
+        return checkBulk(sub, market, scratchBidPrices, scratchBidSizes, bidCount,
+            scratchAskPrices, scratchAskSizes, askCount);
+    }
+
+    /**
+     * Validate a bulk order ladder. Every level is checked individually, then the whole ladder is
+     * checked for open interest and margin as if it replaced the resting bulk order. Ladders reserved
+     * and not yet committed count as resting, since any of them may be the one that lands.
+     *
+     * @return {@link #OK} or a {@code REJECT_*} code
+     */
+    public synchronized int checkBulk(int subaccountId, int marketId,
+                                      long[] bidPrices, long[] bidSizes, int bidCount,
+                                      long[] askPrices, long[] askSizes, int askCount) {
+        long buy = 0;
+        long sell = 0;
+        double notional = 0;
+        double scale = sizeScale[marketId];
+        for (int i = 0; i < bidCount; i++) {
+            int result = checkLevel(marketId, bidPrices[i], bidSizes[i]);
+            if (result != OK) {
+                return result;
+            }
+            buy += bidSizes[i];
+            notional += bidPrices[i] * (double) bidSizes[i] * scale;
+        }
+        for (int i = 0; i < askCount; i++) {
+            int result = checkLevel(marketId, askPrices[i], askSizes[i]);
+            if (result != OK) {
+                return result;
+            }
+            sell += askSizes[i];
+            notional += askPrices[i] * (double) askSizes[i] * scale;
+        }
+
+        int cell = cell(subaccountId, marketId);
+        long pos = position[cell];
+        if (!openInterestOk(marketId, pos, pos + openBuySize[cell] + buy)
+                || !openInterestOk(marketId, pos, pos - openSellSize[cell] - sell)) {
+            return REJECT_OPEN_INTEREST;
+        }
+
+        double delta = notional - Math.max(bulkNotional[cell], reservedBulkNotional[cell]);
+        return checkExposure(subaccountId, marketId, delta, delta / maxLeverage[marketId]);
+    }
+
+    // Reservations
+
+    /**
+     * Check a single order and, if it passes, count it as resting exposure straight away. Settle it with
+     * {@link #onOrderAccepted} once it commits or {@link #releaseOrder} if it fails.
+     *
+     * @return {@link #OK} or a {@code REJECT_*} code; nothing is reserved unless {@link #OK}
+     */
+    public synchronized int reserveOrder(AccountAddress subaccountAddr, AccountAddress marketAddr, long price,
+                                         long size, boolean isBuy, boolean isReduceOnly) {
+        int sub = lookup(subaccountIds, subaccountAddr);
+        if (sub < 0) {
+            return REJECT_UNKNOWN_SUBACCOUNT;
+        }
+        int market = lookup(marketIds, marketAddr);
+        if (market < 0) {
+            return REJECT_UNKNOWN_MARKET;
+        }
+        int result = checkOrder(sub, market, price, size, isBuy, isReduceOnly);
+        if (result == OK) {
+            addOpen(cell(sub, market), market, price, size, isBuy);
+        }
+        return result;
+    }
+
+    /**
+     * Release a reservation from {@link #reserveOrder} for an order that was not sent or did not commit.
+     */
+    public synchronized void releaseOrder(AccountAddress subaccountAddr, AccountAddress marketAddr, long price,
+                                          long size, boolean isBuy) {
+        int sub = lookup(subaccountIds, subaccountAddr);
+        int market = lookup(marketIds, marketAddr);
+        if (sub >= 0 && market >= 0) {
+            onOrderClosed(sub, market, price, size, isBuy);
+        }
+    }
+
+    /**
+     * Check a bulk ladder by address and, if it passes, reserve it until it settles with
+     * {@link #onBulkAccepted} or {@link #releaseBulk}.
+     *
+     * @return {@link #OK} or a {@code REJECT_*} code; nothing is reserved unless {@link #OK}
+     */
+    public synchronized int reserveBulk(AccountAddress subaccountAddr, AccountAddress marketAddr,
+                                        List<Long> bidPrices, List<Long> bidSizes,
+                                        List<Long> askPrices, List<Long> askSizes) {
+        int sub = lookup(subaccountIds, subaccountAddr);
+        if (sub < 0) {
+            return REJECT_UNKNOWN_SUBACCOUNT;
+        }
+        int market = lookup(marketIds, marketAddr);
+        if (market < 0) {
+            return REJECT_UNKNOWN_MARKET;
+        }
+        int bidCount = unboxBids(bidPrices, bidSizes);
+        int askCount = unboxAsks(askPrices, askSizes);
+        if (bidCount < 0 || askCount < 0) {
+            return REJECT_LADDER_LENGTH;
+        }
+        return reserveBulk(sub, market, scratchBidPrices, scratchBidSizes, bidCount,
+            scratchAskPrices, scratchAskSizes, askCount);
+    }
+
+    /**
+     * Check a bulk ladder and, if it passes, reserve it until it settles with {@link #onBulkAccepted} or
+     * {@link #releaseBulk}.
+     *
+     * @return {@link #OK} or a {@code REJECT_*} code; nothing is reserved unless {@link #OK}
+     */
+    public synchronized int reserveBulk(int subaccountId, int marketId,
+                                        long[] bidPrices, long[] bidSizes, int bidCount,
+                                        long[] askPrices, long[] askSizes, int askCount) {
+        int result = checkBulk(subaccountId, marketId, bidPrices, bidSizes, bidCount, askPrices, askSizes,
+            askCount);
+        if (result == OK) {
+            reserveLadder(cell(subaccountId, marketId), marketId, bidPrices, bidSizes, bidCount,
+                askPrices, askSizes, askCount);
+        }
+        return result;
+    }
+
+    /**
+     * Settle a reservation from {@link #reserveBulk} for a ladder that was not sent or did not commit.
+     */
+    public synchronized void releaseBulk(int subaccountId, int marketId) {
+        settleBulk(cell(subaccountId, marketId));
+    }
+
+    /**
+     * Settle a reservation from {@link #reserveBulk} by address.
+     */
+    public synchronized void releaseBulk(AccountAddress subaccountAddr, AccountAddress marketAddr) {
+        int sub = lookup(subaccountIds, subaccountAddr);
+        int market = lookup(marketIds, marketAddr);
+        if (sub >= 0 && market >= 0) {
+            releaseBulk(sub, market);
+        }
+    }
+
+    // State updates
+
+    /**
+     * Record a committed single order reserved with {@link #reserveOrder}. The reservation stays as
+     * resting exposure, except for IOC orders, which never rest and have theirs released.
+     */
+    public synchronized void onOrderAccepted(AccountAddress subaccountAddr, AccountAddress marketAddr,
+                                             long price, long size, boolean isBuy, int timeInForce) {
+        if (timeInForce == TIF_IOC) {
+            releaseOrder(subaccountAddr, marketAddr, price, size, isBuy);
+        }
+    }
+
+    /**
+     * Remove a resting single order's exposure after it is cancelled or expires.
+     */
+    public synchronized void onOrderClosed(int subaccountId, int marketId, long price, long size, boolean isBuy) {
+        int cell = cell(subaccountId, marketId);
+        if (isBuy) {
+            openBuySize[cell] = Math.max(0, openBuySize[cell] - size);
+        } else {
+            openSellSize[cell] = Math.max(0, openSellSize[cell] - size);
+        }
+        openNotional[cell] = Math.max(0, openNotional[cell] - price * (double) size * sizeScale[marketId]);
+    }
+
+    /**
+     * Record a committed bulk order reserved with {@link #reserveBulk}, replacing the previous ladder's
+     * exposure. Empty ladders clear it.
+     */
+    public synchronized void onBulkAccepted(AccountAddress subaccountAddr, AccountAddress marketAddr,
+                                            List<Long> bidPrices, List<Long> bidSizes,
+                                            List<Long> askPrices, List<Long> askSizes) {
+        int sub = lookup(subaccountIds, subaccountAddr);
+        int market = lookup(marketIds, marketAddr);
+        int bidCount = unboxBids(bidPrices, bidSizes);
+        int askCount = unboxAsks(askPrices, askSizes);
+        if (sub < 0 || market < 0 || bidCount < 0 || askCount < 0) {
+            return;
+        }
+        onBulkAccepted(sub, market, scratchBidPrices, scratchBidSizes, bidCount,
+            scratchAskPrices, scratchAskSizes, askCount);
+    }
+
+    /**
+     * Record a committed bulk order reserved with {@link #reserveBulk}, replacing the previous ladder's
+     * exposure. Empty ladders clear it.
+     */
+    public synchronized void onBulkAccepted(int subaccountId, int marketId,
+                                            long[] bidPrices, long[] bidSizes, int bidCount,
+                                            long[] askPrices, long[] askSizes, int askCount) {
+        int cell = cell(subaccountId, marketId);
+        double scale = sizeScale[marketId];
+        long buy = 0;
+        long sell = 0;
+        double notional = 0;
+        for (int i = 0; i < bidCount; i++) {
+            buy += bidSizes[i];
+            notional += bidPrices[i] * (double) bidSizes[i] * scale;
+        }
+        for (int i = 0; i < askCount; i++) {
+            sell += askSizes[i];
+            notional += askPrices[i] * (double) askSizes[i] * scale;
+        }
+        bulkBuySize[cell] = buy;
+        bulkSellSize[cell] = sell;
+        bulkNotional[cell] = notional;
+        settleBulk(cell);
+    }
+
+    /**
+     * Apply a fill by address. Fills for unregistered subaccounts or markets are ignored.
+     */
+    public synchronized void onFill(AccountAddress subaccountAddr, AccountAddress marketAddr, long price, long size,
+                                    boolean isBuy) {
+        int sub = lookup(subaccountIds, subaccountAddr);
+        int market = lookup(marketIds, marketAddr);
+        if (sub >= 0 && market >= 0) {
+            onFill(sub, market, price, size, isBuy);
+        }
+    }
+
+    /**
+     * Apply a fill: update the position and release the matching resting exposure,
+     * taking it from single orders first and then from the bulk ladder.
+     */
+    public synchronized void onFill(int subaccountId, int marketId, long price, long size, boolean isBuy) {
+        int cell = cell(subaccountId, marketId);
+        position[cell] += isBuy ? size : -size;
+        double notional = price * (double) size * sizeScale[marketId];
+
+        long[] open = isBuy ? openBuySize : openSellSize;
+        long[] bulk = isBuy ? bulkBuySize : bulkSellSize;
+        long fromOpen = Math.min(open[cell], size);
+        open[cell] -= fromOpen;
+        bulk[cell] = Math.max(0, bulk[cell] - (size - fromOpen));
+        double openShare = size == 0 ? 0 : notional * fromOpen / size;
+        openNotional[cell] = Math.max(0, openNotional[cell] - openShare);
+        bulkNotional[cell] = Math.max(0, bulkNotional[cell] - (notional - openShare));
+
+        if (markPrice[marketId] == 0) {
+            markPrice[marketId] = price;
+        }
+    }
+
+    /**
+     * @return Signed position in size units
+     */
+    public synchronized long getPosition(int subaccountId, int marketId) {
+        return position[cell(subaccountId, marketId)];
+    }
+
+    /**
+     * @return Margin currently required by positions and resting orders, in quote price units
+     */
+    public synchronized double getRequiredMargin(int subaccountId) {
+        return requiredMargin(subaccountId);
+    }
+
+    /**
+     * Human-readable reason for a check result.
+     */
+    public static String describe(int result) {
+        switch (result) {
+            case OK: return "ok";
+            case REJECT_UNKNOWN_MARKET: return "market not registered";
+            case REJECT_UNKNOWN_SUBACCOUNT: return "subaccount not registered";
+            case REJECT_PRICE: return "price must be positive";
+            case REJECT_TICK_SIZE: return "price is not a multiple of the tick size";
+            case REJECT_MIN_SIZE: return "size is below the market minimum";
+            case REJECT_LOT_SIZE: return "size is not a multiple of the lot size";
+            case REJECT_ORDER_NOTIONAL: return "order notional exceeds the market limit";
+            case REJECT_GROSS_NOTIONAL: return "gross notional exceeds the subaccount limit";
+            case REJECT_LEVERAGE: return "required margin exceeds collateral at max leverage";
+            case REJECT_OPEN_INTEREST: return "position would exceed max open interest";
+            case REJECT_REDUCE_ONLY: return "reduce-only order would not reduce the position";
+            case REJECT_LADDER_LENGTH: return "ladder prices and sizes differ in length";
+            default: return "unknown reason " + result;
+        }
+    }
+
+    // Internals
+
+    /**
+     * @return Engine id for the address, or -1 if it was never registered
+     */
+    private static int lookup(int[] index, AccountAddress addr) {
+        int addrId = AddressTable.find(addr);
+        return addrId >= 0 && addrId < index.length ? index[addrId] : -1;
+    }
+
+    private static int[] ensureIndex(int[] index, int addrId) {
+        if (addrId < index.length) {
+            return index;
+        }
+        int oldLength = index.length;
+        int[] grown = Arrays.copyOf(index, Math.max(addrId + 1, oldLength * 2));
+        Arrays.fill(grown, oldLength, grown.length, -1);
+        return grown;
+    }
+
+    private int cell(int subaccountId, int marketId) {
+        return subaccountId * maxMarkets + marketId;
+    }
+
+    private int checkLevel(int marketId, long price, long size) {
+        if (price <= 0) {
+            return REJECT_PRICE;
+        }
+        if (price % tickSize[marketId] != 0) {
+            return REJECT_TICK_SIZE;
+        }
+        if (size < minSize[marketId] || size <= 0) {
+            return REJECT_MIN_SIZE;
+        }
+        if (size % lotSize[marketId] != 0) {
+            return REJECT_LOT_SIZE;
+        }
+        if (price * (double) size * sizeScale[marketId] > maxOrderNotional[marketId]) {
+            return REJECT_ORDER_NOTIONAL;
+        }
+        return OK;
+    }
+
+    private boolean openInterestOk(int marketId, long currentPosition, long worstPosition) {
+        long increase = Math.abs(worstPosition) - Math.abs(currentPosition);
+        if (increase <= 0) {
+            return true;
+        }
+        return marketOpenInterest[marketId] + increase <= maxOpenInterest[marketId];
+    }
+
+    private int checkExposure(int subaccountId, int marketId, double addedNotional, double addedMargin) {
+        int row = subaccountId * maxMarkets;
+        double gross = 0;
+        double margin = 0;
+        for (int m = 0; m < marketCount; m++) {
+            double exposure = exposure(row + m, m);
+            gross += exposure;
+            margin += exposure / maxLeverage[m];
+        }
+        if (gross + addedNotional > maxGrossNotional[subaccountId]) {
+            return REJECT_GROSS_NOTIONAL;
+        }
+        if (margin + addedMargin > collateral[subaccountId]) {
+            return REJECT_LEVERAGE;
+        }
+        return OK;
+    }
+
+    private double requiredMargin(int subaccountId) {
+        int row = subaccountId * maxMarkets;
+        double margin = 0;
+        for (int m = 0; m < marketCount; m++) {
+            margin += exposure(row + m, m) / maxLeverage[m];
+        }
+        return margin;
+    }
+
+    private double exposure(int cell, int marketId) {
+        return Math.abs(position[cell]) * (double) markPrice[marketId] * sizeScale[marketId]
+            + openNotional[cell] + Math.max(bulkNotional[cell], reservedBulkNotional[cell]);
+    }
+
+    private void addOpen(int cell, int marketId, long price, long size, boolean isBuy) {
+        if (isBuy) {
+            openBuySize[cell] += size;
+        } else {
+            openSellSize[cell] += size;
+        }
+        openNotional[cell] += price * (double) size * sizeScale[marketId];
+    }
+
+    private void reserveLadder(int cell, int marketId, long[] bidPrices, long[] bidSizes, int bidCount,
+                               long[] askPrices, long[] askSizes, int askCount) {
+        double scale = sizeScale[marketId];
+        long buy = 0;
+        long sell = 0;
+        double notional = 0;
+        for (int i = 0; i < bidCount; i++) {
+            buy += bidSizes[i];
+            notional += bidPrices[i] * (double) bidSizes[i] * scale;
+        }
+        for (int i = 0; i < askCount; i++) {
+            sell += askSizes[i];
+            notional += askPrices[i] * (double) askSizes[i] * scale;
+        }
+        reservedBulkBuySize[cell] = Math.max(reservedBulkBuySize[cell], buy);
+        reservedBulkSellSize[cell] = Math.max(reservedBulkSellSize[cell], sell);
+        reservedBulkNotional[cell] = Math.max(reservedBulkNotional[cell], notional);
+        bulkInFlight[cell]++;
+    }
+
+    private void settleBulk(int cell) {
+        if (bulkInFlight[cell] > 0 && --bulkInFlight[cell] == 0) {
+            reservedBulkBuySize[cell] = 0;
+            reservedBulkSellSize[cell] = 0;
+            reservedBulkNotional[cell] = 0;
+        }
+    }
+
+    /**
+     * @return Number of levels, or -1 if the price and size lists differ in length
+     */
+    private int unboxBids(List<Long> prices, List<Long> sizes) {
+        if (prices.size() != sizes.size()) {
+            return -1;
+        }
+        int count = prices.size();
+        if (count > scratchBidPrices.length) {
+            scratchBidPrices = new long[count];
+            scratchBidSizes = new long[count];
+        }
+        for (int i = 0; i < count; i++) {
+            scratchBidPrices[i] = prices.get(i);
+            scratchBidSizes[i] = sizes.get(i);
+        }
+        return count;
+    }
+
+    private int unboxAsks(List<Long> prices, List<Long> sizes) {
+        if (prices.size() != sizes.size()) {
+            return -1;
+        }
+        int count = prices.size();
+        if (count > scratchAskPrices.length) {
+            scratchAskPrices = new long[count];
+            scratchAskSizes = new long[count];
+        }
+        for (int i = 0; i < count; i++) {
+            scratchAskPrices[i] = prices.get(i);
+            scratchAskSizes[i] = sizes.get(i);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,20 @@
+package com.decibel;
+
+/**
+ * Thrown when an order fails a local pre-trade risk check and is not submitted.
+ */
+public class RiskRejectedException extends Exception {
+    private final int reason;
+
+    public RiskRejectedException(int reason) {
+        super("Pre-trade risk check failed: " + RiskEngine.describe(reason));
+        this.reason = reason;
+    }
+
+    /**
+     * @return One of the {@code REJECT_*} constants on {@link RiskEngine}
+     */
+    public int getReason() {
+        return reason;
+    }
+}
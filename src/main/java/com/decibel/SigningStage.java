@@ -0,0 +1,165 @@
+package com.decibel;
+
+import com.aptoslabs.japtos.account.Ed25519Account;
+import com.aptoslabs.japtos.transaction.RawTransaction;
+import com.aptoslabs.japtos.transaction.SignedTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dedicated Ed25519 signing stage decoupled from the threads doing HTTP I/O.
+ *
+ * <p>Raw transactions are queued and signed by a fixed set of worker threads, one per available core by
+ * default. Each call returns a future that completes with the signed transaction, so callers can hand it to
+ * their submission threads with {@code thenApplyAsync(..., submitExecutor)} instead of signing inline.
+ * Queue depth, time spent queued and time spent signing are exposed for monitoring.</p>
+ */
+public class SigningStage implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(SigningStage.class);
+
+    private final BlockingQueue<Job> queue;
+    private final Thread[] workers;
+    private final LatencyHistogram queueLatency = new LatencyHistogram();
+    private final LatencyHistogram signLatency = new LatencyHistogram();
+    private volatile boolean running = true;
+
+    /**
+     * Create a signing stage with one worker per available core.
+     */
+    public SigningStage() {
+        this(Runtime.getRuntime().availableProcessors(), 4096);
+    }
+
+    /**
+     * Create a signing stage.
+     *
+     * @param threads Number of signing threads
+     * @param queueCapacity Maximum number of raw transactions waiting to be signed
+     */
+    public SigningStage(int threads, int queueCapacity) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(this::runWorker, "signer-" + i);
+            worker.setDaemon(true);
+            // Signing sits on the order path; keep it ahead of background work when cores are oversubscribed
+            worker.setPriority(Thread.MAX_PRIORITY);
+            workers[i] = worker;
+            worker.start();
+        }
+        logger.info("Signing stage started with {} threads", threads);
+    }
+
+    /**
+     * Queue a raw transaction for signing.
+     *
+     * @return Future completed with the signed transaction, or exceptionally if signing fails
+     * @throws RejectedExecutionException If the stage is closed or the queue is full
+     */
+    public CompletableFuture<SignedTransaction> sign(Ed25519Account account, RawTransaction rawTx) {
+        if (!running) {
+            throw new RejectedExecutionException("Signing stage is closed");
+        }
+        Job job = new Job(account, rawTx, System.nanoTime());
+        if (!queue.offer(job)) {
+            throw new RejectedExecutionException("Signing queue is full (" + queue.size() + " pending)");
+        }
+        // close() may have run between the check above and the offer, after the workers last saw an empty queue
+        if (!running && queue.remove(job)) {
+            throw new RejectedExecutionException("Signing stage is closed");
+        }
+        return job.result;
+    }
+
+    /**
+     * @return Number of raw transactions waiting for a signing thread
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return Time from {@link #sign} to a worker picking the transaction up
+     */
+    public LatencyHistogram getQueueLatency() {
+        return queueLatency;
+    }
+
+    /**
+     * @return Time spent computing signatures
+     */
+    public LatencyHistogram getSignLatency() {
+        return signLatency;
+    }
+
+    /**
+     * Stop accepting work, let workers drain the queue, and wait for them to exit. Jobs still queued once the
+     * workers are gone are failed with {@link RejectedExecutionException} so no caller waits on them forever.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            for (Thread worker : workers) {
+                worker.join(TimeUnit.SECONDS.toMillis(5));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            Job job;
+            while ((job = queue.poll()) != null) {
+                job.result.completeExceptionally(new RejectedExecutionException("Signing stage is closed"));
+            }
+        }
+    }
+
+    private void runWorker() {
+        while (running || !queue.isEmpty()) {
+            Job job;
+            try {
+                job = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (job == null) {
+                continue;
+            }
+            long start = System.nanoTime();
+            queueLatency.record(start - job.enqueuedNanos);
+            if (job.result.isDone()) {
+                // The caller gave up waiting and signed it elsewhere
+                continue;
+            }
+            try {
+                SignedTransaction signedTx = new SignedTransaction(
+                    job.rawTx,
+                    job.account.signTransactionWithAuthenticator(job.rawTx)
+                );
+                signLatency.record(System.nanoTime() - start);
+                job.result.complete(signedTx);
+            } catch (Exception e) {
+                job.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static final class Job {
+        final Ed25519Account account;
+        final RawTransaction rawTx;
+        final long enqueuedNanos;
+        final CompletableFuture<SignedTransaction> result = new CompletableFuture<>();
+
+        Job(Ed25519Account account, RawTransaction rawTx, long enqueuedNanos) {
+            this.account = account;
+            this.rawTx = rawTx;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+}
@@ -0,0 +1,512 @@
+package com.decibel;
+
+import com.aptoslabs.japtos.core.AccountAddress;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reads on-chain state for many subaccounts at once, pinned to a single ledger version.
+ *
+ * <p>Every read in a batch goes to the fullnode REST API with the same {@code ledger_version}, so
+ * collateral, positions and bulk order state across hundreds of subaccounts come from one consistent
+ * point in the chain. The REST API has no multi-call endpoint, so a batch is issued as concurrent requests
+ * on a fixed pool of connections, through the fullnode's {@link AdaptiveLimiter} at READ priority. Whole
+ * resource lists are fetched with one request per account.</p>
+ *
+ * <p>Results are cached by request and ledger version. State at a given version never changes, so a
+ * cached result is reused whenever a later batch pins the same version. The pinned version itself is
+ * reused for {@code maxAgeMillis} before the fullnode is asked for a newer one. Call
+ * {@link #invalidate(AccountAddress)} after committing a transaction for an account; its cached results
+ * are dropped and the next batch that reads it pins a fresh version. Batches for other accounts keep the
+ * current pin. If the fullnode has pruned the pinned version (HTTP 410), the batch is unpinned and
+ * retried once at the latest version.</p>
+ */
+public class StateReader implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(StateReader.class);
+
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long INITIAL_BACKOFF_MILLIS = 50;
+    private static final long MAX_BACKOFF_MILLIS = 2000;
+
+    private final String baseUrl;
+    private final long maxAgeMillis;
+    private final AdaptiveLimiter limiter;
+    private final ExecutorService executor;
+    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+    // Address ids invalidated since the version was last pinned
+    private final Set<Integer> invalidated = ConcurrentHashMap.newKeySet();
+
+    private long pinnedVersion = -1;
+    private long pinnedAtMillis;
+
+    /**
+     * @param fullnodeUrl Fullnode REST URL, with or without the trailing {@code /v1}
+     * @param concurrency Requests in flight at once
+     * @param maxAgeMillis How long a pinned ledger version is reused before a newer one is fetched
+     */
+    public StateReader(String fullnodeUrl, int concurrency, long maxAgeMillis) {
+        String url = fullnodeUrl.endsWith("/") ? fullnodeUrl.substring(0, fullnodeUrl.length() - 1) : fullnodeUrl;
+        this.baseUrl = url.endsWith("/v1") ? url : url + "/v1";
+        this.maxAgeMillis = maxAgeMillis;
+        this.limiter = AdaptiveLimiter.forEndpoint(fullnodeUrl);
+        this.executor = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread t = new Thread(r, "state-reader");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Names of the Move view functions that report Decibel state. Each takes the subaccount address,
+     * plus the market address for per-market values, and returns a single integer. A null name skips
+     * that value.
+     */
+    public static final class ViewFunctions {
+        final String collateral;
+        final String position;
+        final String bulkSequenceNumber;
+
+        /**
+         * @param collateral {@code address::module::function(subaccount)}
+         * @param position {@code address::module::function(subaccount, market)}
+         * @param bulkSequenceNumber {@code address::module::function(subaccount, market)}
+         */
+        public ViewFunctions(String collateral, String position, String bulkSequenceNumber) {
+            this.collateral = collateral;
+            this.position = position;
+            this.bulkSequenceNumber = bulkSequenceNumber;
+        }
+    }
+
+    /**
+     * One subaccount's state at the snapshot's ledger version. Per-market arrays follow the market list
+     * the snapshot was read for; unread values are {@link Long#MIN_VALUE}.
+     */
+    public static final class SubaccountState {
+        private final AccountAddress subaccountAddr;
+        private final long collateral;
+        private final long[] positions;
+        private final long[] bulkSequenceNumbers;
+
+        SubaccountState(AccountAddress subaccountAddr, long collateral, long[] positions,
+                        long[] bulkSequenceNumbers) {
+            this.subaccountAddr = subaccountAddr;
+            this.collateral = collateral;
+            this.positions = positions;
+            this.bulkSequenceNumbers = bulkSequenceNumbers;
+        }
+
+        public AccountAddress getSubaccountAddr() {
+            return subaccountAddr;
+        }
+
+        public long getCollateral() {
+            return collateral;
+        }
+
+        public long getPosition(int marketIndex) {
+            return positions[marketIndex];
+        }
+
+        public long getBulkSequenceNumber(int marketIndex) {
+            return bulkSequenceNumbers[marketIndex];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("SubaccountState{subaccount=%s, collateral=%d, positions=%s, bulkSeq=%s}",
+                subaccountAddr, collateral, Arrays.toString(positions), Arrays.toString(bulkSequenceNumbers));
+        }
+    }
+
+    /**
+     * Subaccount states read at one ledger version.
+     */
+    public static final class Snapshot {
+        private final long ledgerVersion;
+        private final List<AccountAddress> markets;
+        private final List<SubaccountState> subaccounts;
+
+        Snapshot(long ledgerVersion, List<AccountAddress> markets, List<SubaccountState> subaccounts) {
+            this.ledgerVersion = ledgerVersion;
+            this.markets = markets;
+            this.subaccounts = subaccounts;
+        }
+
+        public long getLedgerVersion() {
+            return ledgerVersion;
+        }
+
+        public List<AccountAddress> getMarkets() {
+            return markets;
+        }
+
+        public List<SubaccountState> getSubaccounts() {
+            return subaccounts;
+        }
+    }
+
+    /**
+     * Read collateral, and position and bulk sequence number per market, for every subaccount at one
+     * ledger version.
+     */
+    public Snapshot readSubaccounts(List<AccountAddress> subaccounts, List<AccountAddress> markets,
+                                    ViewFunctions functions) throws IOException {
+        long version = pinVersion(subaccounts);
+        try {
+            return readSubaccounts(subaccounts, markets, functions, version);
+        } catch (VersionPrunedException e) {
+            return readSubaccounts(subaccounts, markets, functions, repin(version));
+        }
+    }
+
+    private Snapshot readSubaccounts(List<AccountAddress> subaccounts, List<AccountAddress> markets,
+                                     ViewFunctions functions, long version) throws IOException {
+        int marketCount = markets.size();
+        List<CompletableFuture<JsonNode>> collateral = new ArrayList<>(subaccounts.size());
+        List<CompletableFuture<JsonNode>> perMarket = new ArrayList<>(subaccounts.size() * marketCount * 2);
+        for (AccountAddress subaccount : subaccounts) {
+            String sub = AddressTable.hex(subaccount);
+            collateral.add(functions.collateral != null
+                ? viewAsync(functions.collateral, version, subaccount, sub)
+                : CompletableFuture.completedFuture(null));
+            for (AccountAddress market : markets) {
+                String mkt = AddressTable.hex(market);
+                perMarket.add(functions.position != null
+                    ? viewAsync(functions.position, version, subaccount, sub, mkt)
+                    : CompletableFuture.completedFuture(null));
+                perMarket.add(functions.bulkSequenceNumber != null
+                    ? viewAsync(functions.bulkSequenceNumber, version, subaccount, sub, mkt)
+                    : CompletableFuture.completedFuture(null));
+            }
+        }
+
+        List<SubaccountState> states = new ArrayList<>(subaccounts.size());
+        for (int s = 0; s < subaccounts.size(); s++) {
+            long[] positions = new long[marketCount];
+            long[] bulkSequenceNumbers = new long[marketCount];
+            for (int m = 0; m < marketCount; m++) {
+                int base = (s * marketCount + m) * 2;
+                positions[m] = firstLong(join(perMarket.get(base)));
+                bulkSequenceNumbers[m] = firstLong(join(perMarket.get(base + 1)));
+            }
+            states.add(new SubaccountState(subaccounts.get(s), firstLong(join(collateral.get(s))), positions,
+                bulkSequenceNumbers));
+        }
+        return new Snapshot(version, Collections.unmodifiableList(new ArrayList<>(markets)),
+            Collections.unmodifiableList(states));
+    }
+
+    /**
+     * Fetch every resource of each account at one ledger version.
+     *
+     * @return Resource lists, in the order of the accounts given
+     */
+    public Map<AccountAddress, JsonNode> getResources(List<AccountAddress> accounts) throws IOException {
+        long version = pinVersion(accounts);
+        try {
+            return getResources(accounts, version);
+        } catch (VersionPrunedException e) {
+            return getResources(accounts, repin(version));
+        }
+    }
+
+    private Map<AccountAddress, JsonNode> getResources(List<AccountAddress> accounts, long version)
+            throws IOException {
+        List<CompletableFuture<JsonNode>> pending = new ArrayList<>(accounts.size());
+        for (AccountAddress account : accounts) {
+            String path = "/accounts/" + AddressTable.hex(account) + "/resources";
+            pending.add(cached(account, "resources " + path, version,
+                () -> request("GET", path + "?ledger_version=" + version, null)));
+        }
+        Map<AccountAddress, JsonNode> out = new LinkedHashMap<>();
+        for (int i = 0; i < accounts.size(); i++) {
+            out.put(accounts.get(i), join(pending.get(i)));
+        }
+        return out;
+    }
+
+    /**
+     * Call a view function at the pinned ledger version.
+     *
+     * @param args Arguments in their JSON string form (addresses as {@code 0x} hex, integers in decimal)
+     */
+    public JsonNode view(String function, String... args) throws IOException {
+        long version = pinVersion();
+        try {
+            return join(viewAsync(function, version, null, args));
+        } catch (VersionPrunedException e) {
+            return join(viewAsync(function, repin(version), null, args));
+        }
+    }
+
+    /**
+     * @return The ledger version batches are currently pinned to, fetching one if the pin has expired
+     */
+    public long pinVersion() throws IOException {
+        return pinVersion(false);
+    }
+
+    /**
+     * Drop cached results for an account, so the next batch that reads it pins a version that includes its
+     * latest committed transaction. Other accounts' results and the current pin are kept.
+     */
+    public void invalidate(AccountAddress account) {
+        int addrId = AddressTable.id(account);
+        invalidated.add(addrId);
+        cache.values().removeIf(entry -> entry.accountId == addrId);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Pin a version for a batch over these accounts, fetching a fresh one if any was invalidated.
+     */
+    private long pinVersion(List<AccountAddress> accounts) throws IOException {
+        boolean refresh = false;
+        for (AccountAddress account : accounts) {
+            refresh |= invalidated.contains(AddressTable.id(account));
+        }
+        long version = pinVersion(refresh);
+        if (refresh) {
+            for (AccountAddress account : accounts) {
+                invalidated.remove(AddressTable.id(account));
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Replace a pin the fullnode has pruned with the latest version.
+     */
+    private long repin(long prunedVersion) throws IOException {
+        logger.warn("Ledger version {} was pruned by the fullnode; re-pinning", prunedVersion);
+        synchronized (this) {
+            if (pinnedVersion == prunedVersion) {
+                pinnedVersion = -1;
+            }
+        }
+        return pinVersion(false);
+    }
+
+    private synchronized long pinVersion(boolean refresh) throws IOException {
+        long now = System.currentTimeMillis();
+        if (refresh || pinnedVersion < 0 || now - pinnedAtMillis >= maxAgeMillis) {
+            JsonNode info = limited(() -> request("GET", "", null));
+            long version = info.path("ledger_version").asLong(-1);
+            if (version < 0) {
+                throw new IOException("Fullnode ledger info has no ledger_version");
+            }
+            if (version != pinnedVersion) {
+                evictBefore(version);
+            }
+            pinnedVersion = version;
+            pinnedAtMillis = now;
+        }
+        return pinnedVersion;
+    }
+
+    private CompletableFuture<JsonNode> viewAsync(String function, long version, AccountAddress account,
+                                                  String... args) {
+        ObjectNode body = DecibelUtils.Json.MAPPER.createObjectNode();
+        body.put("function", function);
+        body.putArray("type_arguments");
+        ArrayNode arguments = body.putArray("arguments");
+        for (String arg : args) {
+            arguments.add(arg);
+        }
+        String json = body.toString();
+        return cached(account, "view " + json, version,
+            () -> request("POST", "/view?ledger_version=" + version, json));
+    }
+
+    private CompletableFuture<JsonNode> cached(AccountAddress account, String key, long version,
+                                               FullnodeCall call) {
+        CacheEntry entry = cache.get(key);
+        if (entry != null && entry.version == version) {
+            return entry.result;
+        }
+        int accountId = account != null ? AddressTable.id(account) : -1;
+        CacheEntry candidate = new CacheEntry(accountId, version, new CompletableFuture<>());
+        CacheEntry raced = cache.compute(key, (k, existing) ->
+            existing != null && existing.version >= version ? existing : candidate);
+        CacheEntry started = candidate;
+        if (raced != candidate) {
+            if (raced.version == version) {
+                return raced.result;
+            }
+            // The cache already holds a newer version; read this one without caching it
+            started = new CacheEntry(accountId, version, new CompletableFuture<>());
+        }
+        CacheEntry read = started;
+        executor.execute(() -> {
+            try {
+                read.result.complete(limited(call));
+            } catch (Exception e) {
+                // Never cache a failure
+                cache.remove(key, read);
+                read.result.completeExceptionally(e);
+            }
+        });
+        return read.result;
+    }
+
+    private void evictBefore(long version) {
+        cache.values().removeIf(entry -> entry.version < version && entry.result.isDone());
+    }
+
+    /**
+     * Run a read under the limiter. A batch queues far more reads than the limiter admits within its READ
+     * wait, so reads that are shed or rate-limited are retried with backoff rather than failing the batch.
+     */
+    private JsonNode limited(FullnodeCall call) throws IOException {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return limiter.execute(AdaptiveLimiter.Priority.READ, call::call);
+            } catch (RateLimitedException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(Math.max(backoff, e.getRetryAfterMillis()));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted backing off state read");
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private JsonNode request(String method, String path, String body) throws IOException {
+        URL url = new URL(baseUrl + path);
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod(method);
+        conn.setConnectTimeout(10000);
+        conn.setReadTimeout(10000);
+        conn.setRequestProperty("Accept", "application/json");
+        if (body != null) {
+            conn.setDoOutput(true);
+            conn.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = conn.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        int responseCode = conn.getResponseCode();
+        if (responseCode == 429) {
+            throw new RateLimitedException("Fullnode rate limited", DecibelUtils.retryAfterMillis(conn));
+        }
+        if (responseCode != 200) {
+            String error = readAll(conn.getErrorStream());
+            conn.disconnect();
+            String message = "Fullnode " + method + " " + path + " failed: " + responseCode + " - " + error;
+            if (responseCode == 410) {
+                // The pinned version has been pruned from this fullnode
+                throw new VersionPrunedException(message);
+            }
+            throw new IOException(message);
+        }
+        String response = readAll(conn.getInputStream());
+        conn.disconnect();
+        return DecibelUtils.Json.MAPPER.readTree(response);
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        if (in == null) {
+            return "";
+        }
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            stream.transferTo(out);
+            return out.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static JsonNode join(CompletableFuture<JsonNode> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for state read", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+
+    /**
+     * First element of a view result as a long; view functions return u64 values as JSON strings.
+     */
+    private static long firstLong(JsonNode result) {
+        if (result == null || !result.isArray() || result.size() == 0) {
+            return Long.MIN_VALUE;
+        }
+        JsonNode value = result.get(0);
+        if (value.isObject() && value.has("vec")) {
+            // Option<u64>
+            JsonNode vec = value.get("vec");
+            return vec.size() > 0 ? Long.parseLong(vec.get(0).asText()) : Long.MIN_VALUE;
+        }
+        try {
+            return Long.parseLong(value.asText());
+        } catch (NumberFormatException e) {
+            logger.warn("Unexpected view result {}", result);
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * The fullnode no longer holds state at the requested ledger version.
+     */
+    private static final class VersionPrunedException extends IOException {
+        VersionPrunedException(String message) {
+            super(message);
+        }
+    }
+
+    @FunctionalInterface
+    private interface FullnodeCall {
+        JsonNode call() throws IOException;
+    }
+
+    private static final class CacheEntry {
+        final int accountId;
+        final long version;
+        final CompletableFuture<JsonNode> result;
+
+        CacheEntry(int accountId, long version, CompletableFuture<JsonNode> result) {
+            this.accountId = accountId;
+            this.version = version;
+            this.result = result;
+        }
+    }
+}